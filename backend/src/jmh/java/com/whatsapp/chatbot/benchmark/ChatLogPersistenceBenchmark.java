@@ -0,0 +1,135 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.google.cloud.NoCredentials;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
+import com.whatsapp.chatbot.entity.ChatMessage;
+import com.whatsapp.chatbot.repository.ChatMessageRepository;
+import com.whatsapp.chatbot.repository.ChatMessageRepositoryImpl;
+import com.whatsapp.chatbot.repository.OutboxMessageRepository;
+import com.whatsapp.chatbot.service.ChatLogWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chat log rows stored per second: one write per row (the previous path) against batched writes.
+ * Needs the Firestore emulator, e.g. {@code gcloud emulators firestore start --host-port=localhost:8085}
+ * with {@code FIRESTORE_EMULATOR_HOST=localhost:8085}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ChatLogPersistenceBenchmark {
+
+    // A delivery of 20 text messages: one inbound and one outbound row each
+    private static final int DELIVERY_ROWS = 40;
+    private static final int MESSAGE_ROWS = 2;
+    private static final int LANES = 16;
+
+    private Firestore firestore;
+    private ChatMessageRepositoryImpl repository;
+    private ChatLogWriter writer;
+
+    @Setup
+    public void setUp() {
+        String emulator = System.getenv("FIRESTORE_EMULATOR_HOST");
+        if (emulator == null || emulator.isBlank()) {
+            throw new IllegalStateException("Start the Firestore emulator and set FIRESTORE_EMULATOR_HOST");
+        }
+        firestore = FirestoreOptions.newBuilder()
+                .setProjectId("chatbot-benchmark")
+                .setEmulatorHost(emulator)
+                .setCredentials(NoCredentials.getInstance())
+                .build()
+                .getService();
+        repository = new ChatMessageRepositoryImpl(firestore);
+        // Spring Data routes saveAll to the Firestore fragment; the proxy does the same here
+        ChatMessageRepository routed = (ChatMessageRepository) Proxy.newProxyInstance(
+                ChatMessageRepository.class.getClassLoader(), new Class<?>[]{ChatMessageRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("saveAll")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    @SuppressWarnings("unchecked")
+                    Iterable<ChatMessage> messages = (Iterable<ChatMessage>) args[0];
+                    return repository.saveAll(messages);
+                });
+        // No replies are written here, so the outbox is never touched
+        OutboxMessageRepository outbox = (OutboxMessageRepository) Proxy.newProxyInstance(
+                OutboxMessageRepository.class.getClassLoader(), new Class<?>[]{OutboxMessageRepository.class},
+                (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        writer = new ChatLogWriter(routed, outbox, new SimpleMeterRegistry());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        firestore.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DELIVERY_ROWS)
+    public void deliveryRowByRow() {
+        for (ChatMessage row : rows(DELIVERY_ROWS)) {
+            repository.save(row);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DELIVERY_ROWS)
+    public List<ChatMessage> deliveryBatched() {
+        return repository.saveAll(rows(DELIVERY_ROWS));
+    }
+
+    /**
+     * Lanes each handling one message at a time, as in ASYNC ingestion
+     */
+    @Benchmark
+    @Threads(LANES)
+    @OperationsPerInvocation(MESSAGE_ROWS)
+    public void lanesRowByRow() {
+        for (ChatMessage row : rows(MESSAGE_ROWS)) {
+            repository.save(row);
+        }
+    }
+
+    @Benchmark
+    @Threads(LANES)
+    @OperationsPerInvocation(MESSAGE_ROWS)
+    public void lanesGroupCommit() {
+        writer.write(rows(MESSAGE_ROWS), List.of());
+    }
+
+    private static List<ChatMessage> rows(int count) {
+        List<ChatMessage> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i += 2) {
+            String conversationId = "conversation-" + i;
+            rows.add(ChatMessage.inbound(conversationId, "16505551234",
+                    "Where is the library?", "where is the library"));
+            rows.add(ChatMessage.outbound(conversationId, "16505551234",
+                    "The library is on the second floor, open 9am to 6pm Monday to Saturday.", null));
+        }
+        return rows;
+    }
+}
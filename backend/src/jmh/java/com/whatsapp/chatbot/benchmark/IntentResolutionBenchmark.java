@@ -0,0 +1,104 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.entity.Intent;
+import com.whatsapp.chatbot.matching.IntentMatchResult;
+import com.whatsapp.chatbot.matching.IntentSnapshot;
+import com.whatsapp.chatbot.matching.MatchingStrategy;
+import com.whatsapp.chatbot.text.Stemmer;
+import com.whatsapp.chatbot.text.TextNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Normalization plus intent ranking against snapshots of different sizes and strategies
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntentResolutionBenchmark {
+
+    private static final String[] KNOWN_TRIGGERS = {"hi", "menu", "help", "where is", "opening hours", "library"};
+
+    @Param({"10", "1000", "50000"})
+    public int intents;
+
+    @Param({"EXACT", "FUZZY"})
+    public MatchingStrategy strategy;
+
+    private TextNormalizer normalizer;
+    private IntentSnapshot snapshot;
+    private String exactMessage;
+    private String misspeltMessage;
+    private String unmatchedMessage;
+
+    @Setup
+    public void setUp() {
+        normalizer = new TextNormalizer(Stemmer.NONE);
+        Random random = new Random(42);
+        List<Intent> all = new ArrayList<>(intents);
+        for (int i = 0; i < intents; i++) {
+            String trigger = i < KNOWN_TRIGGERS.length ? KNOWN_TRIGGERS[i] : randomPhrase(random);
+            all.add(Intent.builder()
+                    .id(UUID.randomUUID())
+                    .name("intent-" + i)
+                    .trigger(trigger)
+                    .response("Response " + i)
+                    .active(true)
+                    .updatedAt(Instant.ofEpochSecond(1_700_000_000L + i))
+                    .build());
+        }
+        snapshot = IntentSnapshot.build(1, all, strategy, 2, normalizer);
+        exactMessage = "Hi! Where is the library, and what are the opening hours?";
+        misspeltMessage = "wher is the libary, what are the openign hours?";
+        unmatchedMessage = "Can you tell me something completely unrelated please";
+    }
+
+    @Benchmark
+    public IntentMatchResult exactHit() {
+        return snapshot.rank(normalizer.normalize(exactMessage));
+    }
+
+    @Benchmark
+    public IntentMatchResult misspelt() {
+        return snapshot.rank(normalizer.normalize(misspeltMessage));
+    }
+
+    @Benchmark
+    public IntentMatchResult noMatch() {
+        return snapshot.rank(normalizer.normalize(unmatchedMessage));
+    }
+
+    private static String randomPhrase(Random random) {
+        StringBuilder phrase = new StringBuilder();
+        int words = 1 + random.nextInt(3);
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                phrase.append(' ');
+            }
+            int letters = 4 + random.nextInt(6);
+            for (int c = 0; c < letters; c++) {
+                phrase.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return phrase.toString();
+    }
+}
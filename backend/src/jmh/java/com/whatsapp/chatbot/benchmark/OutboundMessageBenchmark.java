@@ -0,0 +1,86 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.whatsapp.chatbot.client.GraphApiResilience;
+import com.whatsapp.chatbot.client.PreparedMessage;
+import com.whatsapp.chatbot.client.WhatsAppClient;
+import com.whatsapp.chatbot.config.ResilienceConfig;
+import com.whatsapp.chatbot.dto.WhatsAppMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-reply cost of building the outbound Graph API request, excluding the network round trip
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutboundMessageBenchmark {
+
+    private static final String RECIPIENT = "16505551234";
+    private static final String REPLY = "The library is on the second floor, open 9am to 6pm Monday to Saturday.";
+
+    private WhatsAppClient client;
+    private ObjectMapper objectMapper;
+    private PreparedMessage prepared;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        // Never started: only request building is measured
+        client = new WhatsAppClient(new RestTemplate(), HttpAsyncClients.createMinimal(),
+                new GraphApiResilience(new ResilienceConfig(), new SimpleMeterRegistry()), objectMapper,
+                "https://graph.facebook.com", "EAAGm0PX4ZCpsBAKZB1Ac4token", "v17.0", "106540352242922");
+        prepared = client.prepareText(REPLY);
+    }
+
+    @Benchmark
+    public String messagesUrl() {
+        return client.messagesUrl();
+    }
+
+    @Benchmark
+    public HttpEntity<WhatsAppMessage> buildRequest() {
+        return client.buildTextRequest(RECIPIENT, REPLY);
+    }
+
+    /**
+     * URL, headers, DTO and JSON body: everything RestTemplate needs before it opens a connection
+     */
+    @Benchmark
+    public void buildAndSerialize(Blackhole blackhole) throws JsonProcessingException {
+        blackhole.consume(client.messagesUrl());
+        HttpEntity<WhatsAppMessage> entity = client.buildTextRequest(RECIPIENT, REPLY);
+        blackhole.consume(entity.getHeaders());
+        blackhole.consume(objectMapper.writeValueAsBytes(entity.getBody()));
+    }
+
+    /**
+     * What an intent reply costs now: the body was serialized when the intents loaded, so only the
+     * recipient is copied in; URL and headers are fields of the client
+     */
+    @Benchmark
+    public byte[] renderPrepared() {
+        return prepared.render(RECIPIENT);
+    }
+}
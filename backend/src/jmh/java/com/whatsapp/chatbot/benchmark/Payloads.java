@@ -0,0 +1,57 @@
+package com.whatsapp.chatbot.benchmark;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Synthetic webhook bodies shaped like real Graph API deliveries
+ */
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    /**
+     * A delivery with {@code messages} inbound text messages in a single change
+     */
+    static byte[] textMessages(int messages) {
+        StringBuilder json = new StringBuilder(512 + messages * 256);
+        json.append("{\"object\":\"whatsapp_business_account\",\"entry\":[{\"id\":\"102290129340398\",\"changes\":[{")
+                .append("\"value\":{\"messaging_product\":\"whatsapp\",")
+                .append("\"metadata\":{\"display_phone_number\":\"15550783881\",\"phone_number_id\":\"106540352242922\"},")
+                .append("\"contacts\":[{\"profile\":{\"name\":\"Sheena Nelson\"},\"wa_id\":\"16505551234\"}],")
+                .append("\"messages\":[");
+        for (int i = 0; i < messages; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"from\":\"1650555").append(String.format("%04d", i)).append("\",")
+                    .append("\"id\":\"wamid.HBgLMTY1MDM4Nzk0MzkVAgASGBQzQTRBNjU5OUFFRTAzODEwMTQ0RgA").append(i).append("\",")
+                    .append("\"timestamp\":\"1749416383\",\"type\":\"text\",")
+                    .append("\"text\":{\"body\":\"Hi, where is the library and what are the opening hours today?\"}}");
+        }
+        json.append("]},\"field\":\"messages\"}]}]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A status-only delivery (sent/delivered/read receipts), the bulk of webhook volume
+     */
+    static byte[] statuses(int statuses) {
+        StringBuilder json = new StringBuilder(512 + statuses * 512);
+        json.append("{\"object\":\"whatsapp_business_account\",\"entry\":[{\"id\":\"102290129340398\",\"changes\":[{")
+                .append("\"value\":{\"messaging_product\":\"whatsapp\",")
+                .append("\"metadata\":{\"display_phone_number\":\"15550783881\",\"phone_number_id\":\"106540352242922\"},")
+                .append("\"statuses\":[");
+        for (int i = 0; i < statuses; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"wamid.HBgLMTY1MDM4Nzk0MzkVAgARGBI3MTE5MjQ5QjZGNjVBNkZGNkQA").append(i).append("\",")
+                    .append("\"status\":\"delivered\",\"timestamp\":\"1750263773\",\"recipient_id\":\"16505551234\",")
+                    .append("\"conversation\":{\"id\":\"6ceb9d929c7c6a3ab0c0c1e4b3d5c2a1\",\"origin\":{\"type\":\"utility\"}},")
+                    .append("\"pricing\":{\"billable\":true,\"pricing_model\":\"PMP\",\"category\":\"utility\",\"type\":\"regular\"}}");
+        }
+        json.append("]},\"field\":\"messages\"}]}]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
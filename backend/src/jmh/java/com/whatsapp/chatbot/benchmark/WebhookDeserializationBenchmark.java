@@ -0,0 +1,73 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.whatsapp.chatbot.dto.WhatsAppEvent;
+import com.whatsapp.chatbot.dto.WhatsAppWebhookRequest;
+import com.whatsapp.chatbot.webhook.InboundWebhook;
+import com.whatsapp.chatbot.webhook.WebhookParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading inbound webhook bodies: full binding with the ObjectMapper Spring MVC uses,
+ * binding plus the toString the controller used to log, and the streaming {@link WebhookParser}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebhookDeserializationBenchmark {
+
+    /**
+     * text-N: one delivery with N text messages; status-N: N delivery receipts
+     */
+    @Param({"text-1", "text-20", "status-1", "status-50"})
+    public String payload;
+
+    private ObjectMapper objectMapper;
+    private WebhookParser webhookParser;
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        webhookParser = new WebhookParser(objectMapper);
+        int count = Integer.parseInt(payload.substring(payload.indexOf('-') + 1));
+        body = payload.startsWith("text") ? Payloads.textMessages(count) : Payloads.statuses(count);
+    }
+
+    @Benchmark
+    public WhatsAppEvent whatsAppEvent() throws IOException {
+        return objectMapper.readValue(body, WhatsAppEvent.class);
+    }
+
+    @Benchmark
+    public WhatsAppWebhookRequest whatsAppWebhookRequest() throws IOException {
+        return objectMapper.readValue(body, WhatsAppWebhookRequest.class);
+    }
+
+    @Benchmark
+    public String whatsAppEventLogged() throws IOException {
+        return objectMapper.readValue(body, WhatsAppEvent.class).toString();
+    }
+
+    @Benchmark
+    public InboundWebhook streaming() throws IOException {
+        return webhookParser.parse(body);
+    }
+}
@@ -0,0 +1,284 @@
+package com.whatsapp.chatbot.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.whatsapp.chatbot.concurrent.TokenBucket;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.AsyncServerBootstrap;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.nio.support.BasicResponseProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Stands in for the Graph API on the loopback interface, so the chatbot can be load and soak tested
+ * without Meta. Point {@code whatsapp.api.base-url} at {@link #baseUrl()}. Serves
+ * {@code POST /{version}/{phone-number-id}/messages} and {@code GET /{version}/{phone-number-id}};
+ * each message is answered after a sampled {@link Latency}, or fails with an injected 5xx or 429, or
+ * is refused with 429 once over the throughput cap, the same way the real API answers. Requests are
+ * handled on a non-blocking I/O reactor and answered from a timer, so slow answers hold no thread and
+ * the stub itself does not cap throughput.
+ */
+@Slf4j
+public class GraphApiStub implements AutoCloseable {
+
+    @Data
+    public static class Settings {
+        private String host = "127.0.0.1";
+        /**
+         * 0 picks a free port
+         */
+        private int port = 0;
+        private Latency latency = Latency.none();
+        /**
+         * Share of messages failed with a 500 (code 131000), which the client retries
+         */
+        private double errorRate;
+        /**
+         * Share of messages refused with a 429 (code 80007) regardless of the rate
+         */
+        private double throttleRate;
+        /**
+         * Messages per second accepted across all recipients, 0 for no cap; above it messages get a 429
+         * (code 130429) as from a phone number over its throughput tier. A tenth of a second's worth may
+         * arrive at once.
+         */
+        private double maxMessagesPerSecond;
+        private int ioThreads = 2;
+    }
+
+    /**
+     * How the stub answered a request
+     */
+    public enum Outcome {
+        ACCEPTED, FAILED, THROTTLED, CAPPED, REJECTED
+    }
+
+    /**
+     * A message the stub accepted, with {@link System#nanoTime()} at its arrival
+     */
+    public record Received(String phoneNumberId, String to, String type, long receivedNanos) {
+    }
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final Settings settings;
+    private final HttpAsyncServer server;
+    private final ScheduledExecutorService timer;
+    private final TokenBucket cap;
+    private final AtomicLong messageIds = new AtomicLong();
+    private final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+    private final Map<String, LongAdder> acceptedByRecipient = new ConcurrentHashMap<>();
+    private volatile Consumer<Received> listener = received -> {
+    };
+    private InetSocketAddress address;
+
+    private GraphApiStub(Settings settings) {
+        this.settings = settings;
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, new LongAdder());
+        }
+        double rate = settings.getMaxMessagesPerSecond();
+        this.cap = rate > 0 ? new TokenBucket(rate, Math.max(1, rate / 10), System.nanoTime()) : null;
+        CustomizableThreadFactory timerThreads = new CustomizableThreadFactory("graph-stub-timer-");
+        timerThreads.setDaemon(true);
+        this.timer = Executors.newSingleThreadScheduledExecutor(timerThreads);
+        this.server = AsyncServerBootstrap.bootstrap()
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setIoThreadCount(settings.getIoThreads())
+                        .setSoTimeout(Timeout.ofMinutes(1))
+                        .setTcpNoDelay(true)
+                        .build())
+                .register("*", new Handler())
+                .create();
+    }
+
+    public static GraphApiStub start(Settings settings) throws IOException {
+        GraphApiStub stub = new GraphApiStub(settings);
+        stub.server.start();
+        try {
+            stub.address = (InetSocketAddress) stub.server
+                    .listen(new InetSocketAddress(settings.getHost(), settings.getPort()), URIScheme.HTTP)
+                    .get()
+                    .getAddress();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stub.close();
+            throw new IOException("Interrupted while binding the Graph API stub", e);
+        } catch (ExecutionException e) {
+            stub.close();
+            throw new IOException("Cannot bind the Graph API stub to " + settings.getHost() + ":" + settings.getPort(),
+                    e.getCause());
+        }
+        log.info("Graph API stub listening on {}", stub.baseUrl());
+        return stub;
+    }
+
+    public String baseUrl() {
+        return "http://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    /**
+     * Called on an I/O thread for every accepted message, e.g. to match replies to what was sent;
+     * must not block
+     */
+    public void onMessage(Consumer<Received> listener) {
+        this.listener = listener;
+    }
+
+    public long count(Outcome outcome) {
+        return outcomes.get(outcome).sum();
+    }
+
+    /**
+     * Messages accepted for {@code to}; more than one reply per inbound message means a duplicate send
+     */
+    public long acceptedFor(String to) {
+        LongAdder accepted = acceptedByRecipient.get(to);
+        return accepted == null ? 0 : accepted.sum();
+    }
+
+    private final class Handler implements AsyncServerRequestHandler<Message<HttpRequest, byte[]>> {
+
+        @Override
+        public AsyncRequestConsumer<Message<HttpRequest, byte[]>> prepare(HttpRequest request, EntityDetails entityDetails,
+                                                                          HttpContext context) {
+            return new BasicRequestConsumer<>(entityDetails == null ? null : new BasicAsyncEntityConsumer());
+        }
+
+        @Override
+        public void handle(Message<HttpRequest, byte[]> message, ResponseTrigger trigger, HttpContext context) {
+            long arrived = System.nanoTime();
+            HttpRequest request = message.getHead();
+            Header authorization = request.getFirstHeader(HttpHeaders.AUTHORIZATION);
+            if (authorization == null || !authorization.getValue().startsWith("Bearer ")) {
+                respond(trigger, context, Outcome.REJECTED, 401, error(190, "Invalid OAuth access token."), false);
+                return;
+            }
+            // /{version}/{phone-number-id}[/messages]
+            String path = request.getPath();
+            int query = path.indexOf('?');
+            String[] segments = (query < 0 ? path : path.substring(0, query)).substring(1).split("/");
+            String method = request.getMethod();
+            if (segments.length == 2 && method.equals("GET")) {
+                respond(trigger, context, Outcome.ACCEPTED, 200, phoneNumber(segments[1]), true);
+            } else if (segments.length == 3 && segments[2].equals("messages") && method.equals("POST")) {
+                message(trigger, context, segments[1], message.getBody(), arrived);
+            } else {
+                respond(trigger, context, Outcome.REJECTED, 400, error(100, "Unsupported " + method.toLowerCase()
+                        + " request. Object does not exist or does not support this operation."), false);
+            }
+        }
+    }
+
+    private void message(AsyncServerRequestHandler.ResponseTrigger trigger, HttpContext context, String phoneNumberId,
+                         byte[] body, long arrived) {
+        JsonNode request;
+        try {
+            request = JSON.readTree(body == null ? new byte[0] : body);
+        } catch (IOException e) {
+            respond(trigger, context, Outcome.REJECTED, 400, error(100, "(#100) Invalid JSON: " + e.getMessage()), false);
+            return;
+        }
+        String to = request.path("to").asText(null);
+        if (to == null || !"whatsapp".equals(request.path("messaging_product").asText())) {
+            respond(trigger, context, Outcome.REJECTED, 400,
+                    error(100, "(#100) The parameters to and messaging_product are required."), false);
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (overCap(arrived)) {
+            respond(trigger, context, Outcome.CAPPED, 429, error(130429, "Rate limit hit"), true);
+        } else if (random.nextDouble() < settings.getThrottleRate()) {
+            respond(trigger, context, Outcome.THROTTLED, 429, error(80007, "Rate limit issues"), true);
+        } else if (random.nextDouble() < settings.getErrorRate()) {
+            respond(trigger, context, Outcome.FAILED, 500, error(131000, "Something went wrong"), true);
+        } else {
+            acceptedByRecipient.computeIfAbsent(to, key -> new LongAdder()).increment();
+            listener.accept(new Received(phoneNumberId, to, request.path("type").asText(), arrived));
+            respond(trigger, context, Outcome.ACCEPTED, 200, "{\"messaging_product\":\"whatsapp\","
+                    + "\"contacts\":[{\"input\":\"" + escape(to) + "\",\"wa_id\":\"" + escape(to) + "\"}],"
+                    + "\"messages\":[{\"id\":\"wamid.STUB" + messageIds.incrementAndGet() + "\"}]}", true);
+        }
+    }
+
+    private boolean overCap(long now) {
+        if (cap == null) {
+            return false;
+        }
+        synchronized (cap) {
+            return !cap.tryTake(now);
+        }
+    }
+
+    // Requests the real API would reject before doing any work are answered at once
+    private void respond(AsyncServerRequestHandler.ResponseTrigger trigger, HttpContext context, Outcome outcome,
+                         int status, String json, boolean delayed) {
+        long delay = delayed ? settings.getLatency().sampleNanos(ThreadLocalRandom.current()) : 0;
+        Runnable send = () -> {
+            outcomes.get(outcome).increment();
+            try {
+                trigger.submitResponse(new BasicResponseProducer(status, json, ContentType.APPLICATION_JSON), context);
+            } catch (Exception e) {
+                // The client gave up on this request, e.g. its own timeout
+                log.debug("Failed to answer with {}: {}", status, e.getMessage());
+            }
+        };
+        if (delay <= 0) {
+            send.run();
+        } else {
+            timer.schedule(send, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String phoneNumber(String phoneNumberId) {
+        return "{\"verified_name\":\"Load Test\",\"code_verification_status\":\"NOT_VERIFIED\","
+                + "\"display_phone_number\":\"+1 555-078-3881\",\"quality_rating\":\"GREEN\","
+                + "\"platform_type\":\"CLOUD_API\",\"throughput\":{\"level\":\"STANDARD\"},\"id\":\""
+                + escape(phoneNumberId) + "\"}";
+    }
+
+    private static String error(int code, String message) {
+        return "{\"error\":{\"message\":\"" + escape(message) + "\",\"type\":\"OAuthException\",\"code\":" + code
+                + ",\"fbtrace_id\":\"stub\"}}";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    @Override
+    public void close() {
+        server.close(CloseMode.GRACEFUL);
+        timer.shutdownNow();
+    }
+}
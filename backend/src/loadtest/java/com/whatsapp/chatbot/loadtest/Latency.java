@@ -0,0 +1,82 @@
+package com.whatsapp.chatbot.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * How long {@link GraphApiStub} takes to answer, sampled per request
+ */
+@FunctionalInterface
+public interface Latency {
+
+    // z-score of the 99th percentile of a standard normal distribution
+    double Z_99 = 2.3263478740;
+
+    long sampleNanos(Random random);
+
+    static Latency none() {
+        return random -> 0;
+    }
+
+    static Latency fixed(Duration delay) {
+        long nanos = delay.toNanos();
+        return random -> nanos;
+    }
+
+    static Latency uniform(Duration min, Duration max) {
+        long from = min.toNanos();
+        long span = max.toNanos() - from;
+        if (span < 0) {
+            throw new IllegalArgumentException("max must not be below min");
+        }
+        return random -> from + (span == 0 ? 0 : (long) (random.nextDouble() * span));
+    }
+
+    /**
+     * Log-normal with the given median and 99th percentile: mostly fast with a long tail, the usual
+     * shape of a remote API's response times
+     */
+    static Latency logNormal(Duration median, Duration p99) {
+        if (median.isZero() || median.isNegative() || p99.compareTo(median) < 0) {
+            throw new IllegalArgumentException("median must be positive and p99 at least the median");
+        }
+        double mu = Math.log(median.toNanos());
+        double sigma = (Math.log(p99.toNanos()) - mu) / Z_99;
+        return random -> (long) Math.exp(mu + sigma * random.nextGaussian());
+    }
+
+    /**
+     * {@code none}, {@code fixed:40ms}, {@code uniform:20ms..80ms} or {@code lognormal:40ms..400ms}
+     * (median..p99)
+     */
+    static Latency parse(String spec) {
+        int colon = spec.indexOf(':');
+        String kind = colon < 0 ? spec : spec.substring(0, colon);
+        String[] bounds = colon < 0 ? new String[0] : spec.substring(colon + 1).split("\\.\\.");
+        switch (kind) {
+            case "none":
+                return none();
+            case "fixed":
+                if (bounds.length == 1) {
+                    return fixed(DurationStyle.detectAndParse(bounds[0]));
+                }
+                break;
+            case "uniform":
+                if (bounds.length == 2) {
+                    return uniform(DurationStyle.detectAndParse(bounds[0]), DurationStyle.detectAndParse(bounds[1]));
+                }
+                break;
+            case "lognormal":
+                if (bounds.length == 2) {
+                    return logNormal(DurationStyle.detectAndParse(bounds[0]), DurationStyle.detectAndParse(bounds[1]));
+                }
+                break;
+            default:
+                break;
+        }
+        throw new IllegalArgumentException("Unknown latency '" + spec
+                + "', expected none, fixed:40ms, uniform:20ms..80ms or lognormal:40ms..400ms");
+    }
+}
@@ -0,0 +1,92 @@
+package com.whatsapp.chatbot.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Starts {@link GraphApiStub} and drives a running chatbot with {@link WebhookLoadGenerator}, then
+ * prints the report. Options are {@code --name=value}:
+ * <pre>
+ *   --target=http://127.0.0.1:8080/webhook  --rate=100  --duration=1m  --warmup=10s  --senders=1000
+ *   --messages-per-webhook=1  --connections=64  --max-in-flight=1000  --reply-timeout=30s  --app-secret=...
+ *   --stub-port=8089  --latency=lognormal:40ms..400ms  --error-rate=0  --throttle-rate=0  --max-mps=0
+ *   --stub-only   keep the stub running for other load sources until interrupted
+ * </pre>
+ */
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        GraphApiStub.Settings stubSettings = new GraphApiStub.Settings();
+        stubSettings.setPort(Integer.parseInt(options.getOrDefault("stub-port", "8089")));
+        stubSettings.setLatency(Latency.parse(options.getOrDefault("latency", "lognormal:40ms..400ms")));
+        stubSettings.setErrorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")));
+        stubSettings.setThrottleRate(Double.parseDouble(options.getOrDefault("throttle-rate", "0")));
+        stubSettings.setMaxMessagesPerSecond(Double.parseDouble(options.getOrDefault("max-mps", "0")));
+
+        WebhookLoadGenerator.Settings load = new WebhookLoadGenerator.Settings();
+        if (options.containsKey("target")) {
+            load.setTarget(URI.create(options.get("target")));
+        }
+        if (options.containsKey("rate")) {
+            load.setRate(Double.parseDouble(options.get("rate")));
+        }
+        if (options.containsKey("duration")) {
+            load.setDuration(DurationStyle.detectAndParse(options.get("duration")));
+        }
+        if (options.containsKey("warmup")) {
+            load.setWarmup(DurationStyle.detectAndParse(options.get("warmup")));
+        }
+        if (options.containsKey("senders")) {
+            load.setSenders(Integer.parseInt(options.get("senders")));
+        }
+        if (options.containsKey("messages-per-webhook")) {
+            load.setMessagesPerWebhook(Integer.parseInt(options.get("messages-per-webhook")));
+        }
+        if (options.containsKey("connections")) {
+            load.setConnections(Integer.parseInt(options.get("connections")));
+        }
+        if (options.containsKey("max-in-flight")) {
+            load.setMaxInFlight(Integer.parseInt(options.get("max-in-flight")));
+        }
+        if (options.containsKey("reply-timeout")) {
+            load.setReplyTimeout(DurationStyle.detectAndParse(options.get("reply-timeout")));
+        }
+        load.setAppSecret(options.get("app-secret"));
+
+        try (GraphApiStub stub = GraphApiStub.start(stubSettings)) {
+            System.out.println("Graph API stub at " + stub.baseUrl() + "; start the chatbot with BASEURL=" + stub.baseUrl());
+            if (options.containsKey("stub-only")) {
+                new CountDownLatch(1).await();
+            }
+            try (WebhookLoadGenerator generator = new WebhookLoadGenerator(load, stub)) {
+                generator.run().print(System.out);
+            }
+            System.out.printf("Graph API stub: %d accepted, %d failed (injected), %d throttled (injected), "
+                            + "%d over max-mps, %d rejected%n",
+                    stub.count(GraphApiStub.Outcome.ACCEPTED), stub.count(GraphApiStub.Outcome.FAILED),
+                    stub.count(GraphApiStub.Outcome.THROTTLED), stub.count(GraphApiStub.Outcome.CAPPED),
+                    stub.count(GraphApiStub.Outcome.REJECTED));
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,369 @@
+package com.whatsapp.chatbot.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.whatsapp.chatbot.dto.WhatsAppEvent;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.Timeout;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Posts synthetic text-message webhooks, shaped like Meta's deliveries, to the chatbot at a fixed
+ * rate and measures how long each takes to be acknowledged and, through {@link GraphApiStub}, how
+ * long until its reply reaches the Graph API. The load is open: every webhook is timed from when it
+ * was due rather than when it went out, so a stalled server shows up as latency instead of quietly
+ * lowering the rate. Replies are matched to messages per sender, in order, which holds because the
+ * chatbot answers one sender's messages in the order received.
+ */
+@Slf4j
+public class WebhookLoadGenerator implements AutoCloseable {
+
+    private static final long MAX_LATENCY = TimeUnit.MINUTES.toNanos(10);
+    private static final String SIGNATURE_HEADER = "X-Hub-Signature-256";
+
+    @Data
+    public static class Settings {
+        private URI target = URI.create("http://127.0.0.1:8080/webhook");
+        /**
+         * Webhooks per second
+         */
+        private double rate = 100;
+        private Duration duration = Duration.ofMinutes(1);
+        /**
+         * Sent at the same rate before the measured run, to let the JIT and connection pools settle
+         */
+        private Duration warmup = Duration.ofSeconds(10);
+        /**
+         * Distinct users writing in; fewer senders means more messages queued behind each other
+         */
+        private int senders = 1000;
+        private int messagesPerWebhook = 1;
+        /**
+         * Keep-alive connections to the chatbot; webhooks beyond them wait for one, as Meta's do
+         */
+        private int connections = 64;
+        /**
+         * Webhooks awaiting an answer; above it a webhook is skipped and counted as such
+         */
+        private int maxInFlight = 1000;
+        /**
+         * How long to wait for the last replies once the run is over
+         */
+        private Duration replyTimeout = Duration.ofSeconds(30);
+        /**
+         * Signs every body with X-Hub-Signature-256 when set, as the chatbot expects with whatsapp.api.app-secret
+         */
+        private String appSecret;
+        private String phoneNumberId = "106540352242922";
+        private String displayPhoneNumber = "15550783881";
+        private List<String> texts = List.of(
+                "Hi",
+                "Where is the library?",
+                "What are the opening hours today?",
+                "How do I get to the cafeteria from the main entrance?",
+                "Is there parking for visitors?",
+                "where is the nearest restroom",
+                "Can I book a meeting room for tomorrow afternoon?",
+                "wher is the libary",
+                "Thanks!",
+                "I lost my access card, who should I contact?");
+    }
+
+    /**
+     * Counts and latencies of one run; latencies are in nanoseconds
+     */
+    public record Result(double targetRate, Duration elapsed, long webhooks, long messages, long accepted,
+                         Map<Integer, Long> rejected, long failed, long skipped, Histogram ackLatency,
+                         long replies, long unanswered, long unexpected, Histogram endToEndLatency) {
+
+        public void print(PrintStream out) {
+            double seconds = elapsed.toNanos() / 1e9;
+            out.printf("Webhooks: %d sent in %.1fs (%.1f/s, target %.1f/s), %d messages%n",
+                    webhooks, seconds, webhooks / seconds, targetRate, messages);
+            out.printf("  %d accepted, %d rejected %s, %d failed, %d skipped at max-in-flight%n",
+                    accepted, rejected.values().stream().mapToLong(Long::longValue).sum(), rejected, failed, skipped);
+            printLatency(out, "Acknowledgement latency", ackLatency);
+            out.printf("Replies: %d received, %d messages unanswered, %d replies not matching a message%n",
+                    replies, unanswered, unexpected);
+            printLatency(out, "End-to-end latency (webhook due to reply at Graph API)", endToEndLatency);
+        }
+
+        private static void printLatency(PrintStream out, String title, Histogram histogram) {
+            if (histogram.getTotalCount() == 0) {
+                out.printf("%s: no samples%n", title);
+                return;
+            }
+            out.printf("%s (ms): p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n", title,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+
+    // A message awaiting its reply; unmeasured during warmup
+    private record Pending(long dueNanos, boolean measured) {
+    }
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final Settings settings;
+    private final CloseableHttpAsyncClient client;
+    private final SecretKeySpec signingKey;
+    private final boolean matchReplies;
+    // Keeps message ids unique across runs against the same chatbot, which drops redeliveries
+    private final String runId = Long.toHexString(System.currentTimeMillis());
+    private final ConcurrentMap<String, Queue<Pending>> awaitingReply = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Histogram ackLatency = new ConcurrentHistogram(MAX_LATENCY, 3);
+    private final Histogram endToEndLatency = new ConcurrentHistogram(MAX_LATENCY, 3);
+    private final LongAdder accepted = new LongAdder();
+    private final Map<Integer, LongAdder> rejected = new ConcurrentHashMap<>();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder replies = new LongAdder();
+    private final LongAdder unexpected = new LongAdder();
+    private long skipped;
+
+    /**
+     * @param stub the Graph API the chatbot sends its replies to, or null to measure acknowledgements only
+     */
+    public WebhookLoadGenerator(Settings settings, GraphApiStub stub) {
+        this.settings = settings;
+        this.client = HttpAsyncClients.custom()
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(settings.getConnections())
+                        .setMaxConnPerRoute(settings.getConnections())
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofSeconds(30))
+                        .setResponseTimeout(Timeout.ofSeconds(30))
+                        .build())
+                .disableAutomaticRetries()
+                .build();
+        client.start();
+        this.signingKey = settings.getAppSecret() == null || settings.getAppSecret().isEmpty() ? null
+                : new SecretKeySpec(settings.getAppSecret().getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.matchReplies = stub != null;
+        if (matchReplies) {
+            stub.onMessage(this::replied);
+        }
+    }
+
+    /**
+     * Send webhooks for the warmup and then the measured duration, wait for the replies, and report
+     */
+    public Result run() throws InterruptedException {
+        SplittableRandom random = new SplittableRandom();
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / settings.getRate());
+        long start = System.nanoTime();
+        long measureFrom = start + settings.getWarmup().toNanos();
+        long end = measureFrom + settings.getDuration().toNanos();
+        long webhooks = 0;
+        log.info("Sending {} webhooks/s to {} for {} after {} warmup", settings.getRate(), settings.getTarget(),
+                settings.getDuration(), settings.getWarmup());
+        for (long seq = 0, due = start; due < end; seq++, due = start + seq * interval) {
+            LockSupport.parkNanos(due - System.nanoTime());
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            boolean measured = due >= measureFrom;
+            if (inFlight.get() >= settings.getMaxInFlight()) {
+                if (measured) {
+                    skipped++;
+                }
+                continue;
+            }
+            send(seq, due, measured, random);
+            if (measured) {
+                webhooks++;
+            }
+        }
+        long elapsed = System.nanoTime() - measureFrom;
+        awaitReplies();
+        long unanswered = 0;
+        for (Queue<Pending> pending : awaitingReply.values()) {
+            unanswered += pending.stream().filter(Pending::measured).count();
+        }
+        Map<Integer, Long> rejectedByStatus = new TreeMap<>();
+        rejected.forEach((status, count) -> rejectedByStatus.put(status, count.sum()));
+        return new Result(settings.getRate(), Duration.ofNanos(elapsed), webhooks,
+                webhooks * settings.getMessagesPerWebhook(), accepted.sum(), rejectedByStatus, failed.sum(),
+                skipped, ackLatency, replies.sum(), unanswered, unexpected.sum(), endToEndLatency);
+    }
+
+    private void send(long seq, long due, boolean measured, SplittableRandom random) {
+        String from = String.format("1650%07d", random.nextInt(settings.getSenders()));
+        byte[] body = webhook(seq, from, random);
+        Queue<Pending> queue = awaitingReply.computeIfAbsent(from, key -> new ConcurrentLinkedQueue<>());
+        List<Pending> pending = new ArrayList<>(settings.getMessagesPerWebhook());
+        // Queued before sending, since a synchronous chatbot replies before it acknowledges
+        for (int i = 0; matchReplies && i < settings.getMessagesPerWebhook(); i++) {
+            Pending message = new Pending(due, measured);
+            pending.add(message);
+            queue.add(message);
+        }
+        SimpleRequestBuilder request = SimpleRequestBuilder.post(settings.getTarget())
+                .setBody(body, ContentType.APPLICATION_JSON);
+        if (signingKey != null) {
+            request.addHeader(SIGNATURE_HEADER, "sha256=" + sign(body));
+        }
+        inFlight.incrementAndGet();
+        client.execute(request.build(), new FutureCallback<>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                answered(response.getCode(), due, measured, queue, pending);
+            }
+
+            @Override
+            public void failed(Exception e) {
+                log.debug("Webhook failed: {}", e.getMessage());
+                answered(0, due, measured, queue, pending);
+            }
+
+            @Override
+            public void cancelled() {
+                answered(0, due, measured, queue, pending);
+            }
+        });
+    }
+
+    // status 0 when no response came
+    private void answered(int status, long due, boolean measured, Queue<Pending> queue, List<Pending> pending) {
+        inFlight.decrementAndGet();
+        if (measured) {
+            ackLatency.recordValue(Math.min(System.nanoTime() - due, MAX_LATENCY));
+        }
+        boolean ok = status / 100 == 2;
+        if (!ok) {
+            // Nothing is handled for a rejected webhook, so no reply is coming
+            queue.removeAll(pending);
+        }
+        if (!measured) {
+            return;
+        }
+        if (status == 0) {
+            failed.increment();
+        } else if (ok) {
+            accepted.increment();
+        } else {
+            rejected.computeIfAbsent(status, code -> new LongAdder()).increment();
+        }
+    }
+
+    private void replied(GraphApiStub.Received reply) {
+        Queue<Pending> queue = awaitingReply.get(reply.to());
+        Pending message = queue == null ? null : queue.poll();
+        if (message == null) {
+            unexpected.increment();
+            return;
+        }
+        replies.increment();
+        if (message.measured()) {
+            endToEndLatency.recordValue(Math.min(reply.receivedNanos() - message.dueNanos(), MAX_LATENCY));
+        }
+    }
+
+    private void awaitReplies() throws InterruptedException {
+        long deadline = System.nanoTime() + settings.getReplyTimeout().toNanos();
+        while (System.nanoTime() < deadline
+                && (inFlight.get() > 0 || awaitingReply.values().stream().anyMatch(q -> !q.isEmpty()))) {
+            Thread.sleep(50);
+        }
+    }
+
+    private byte[] webhook(long seq, String from, SplittableRandom random) {
+        WhatsAppEvent.Metadata metadata = new WhatsAppEvent.Metadata();
+        metadata.setDisplayPhoneNumber(settings.getDisplayPhoneNumber());
+        metadata.setPhoneNumberId(settings.getPhoneNumberId());
+        WhatsAppEvent.Profile profile = new WhatsAppEvent.Profile();
+        profile.setName("Load Test " + from.substring(from.length() - 4));
+        WhatsAppEvent.Contact contact = new WhatsAppEvent.Contact();
+        contact.setProfile(profile);
+        contact.setWaId(from);
+        List<WhatsAppEvent.Message> messages = new ArrayList<>(settings.getMessagesPerWebhook());
+        String timestamp = Long.toString(Instant.now().getEpochSecond());
+        for (int i = 0; i < settings.getMessagesPerWebhook(); i++) {
+            WhatsAppEvent.Text text = new WhatsAppEvent.Text();
+            text.setBody(settings.getTexts().get(random.nextInt(settings.getTexts().size())));
+            WhatsAppEvent.Message message = new WhatsAppEvent.Message();
+            message.setFrom(from);
+            message.setId("wamid.LOADTEST" + runId + "." + seq + "." + i);
+            message.setTimestamp(timestamp);
+            message.setType("text");
+            message.setText(text);
+            messages.add(message);
+        }
+        WhatsAppEvent.Value value = new WhatsAppEvent.Value();
+        value.setMessagingProduct("whatsapp");
+        value.setMetadata(metadata);
+        value.setContacts(List.of(contact));
+        value.setMessages(messages);
+        WhatsAppEvent.Change change = new WhatsAppEvent.Change();
+        change.setField("messages");
+        change.setValue(value);
+        WhatsAppEvent.Entry entry = new WhatsAppEvent.Entry();
+        entry.setId("102290129340398");
+        entry.setChanges(List.of(change));
+        WhatsAppEvent event = new WhatsAppEvent();
+        event.setObject("whatsapp_business_account");
+        event.setEntry(List.of(entry));
+        try {
+            return JSON.writeValueAsBytes(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        client.close(CloseMode.GRACEFUL);
+    }
+
+    private String sign(byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(signingKey);
+            return HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
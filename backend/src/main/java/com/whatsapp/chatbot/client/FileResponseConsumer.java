@@ -0,0 +1,149 @@
+package com.whatsapp.chatbot.client;
+
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.core5.http.ContentTooLongException;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Writes a successful response body to a file as it arrives, gathering the reactor's chunks into the
+ * caller's buffer so the file sees full-buffer writes, and hashing it on the way. Error bodies are
+ * small JSON and kept in memory for the status exception. Writes happen on the I/O reactor thread;
+ * they go to the page cache, so they are short.
+ */
+final class FileResponseConsumer extends AbstractBinResponseConsumer<FileResponseConsumer.Result> {
+
+    private static final int MAX_ERROR_BODY = 64 * 1024;
+
+    /**
+     * The status line, and either the error body or the size and SHA-256 (hex) of the file written
+     */
+    record Result(int code, String reasonPhrase, byte[] errorBody, long size, String sha256) {
+
+        boolean isSuccessful() {
+            return code >= 200 && code < 300;
+        }
+    }
+
+    private final Path target;
+    private final long maxBytes;
+    private final ByteBuffer buffer;
+    private int code;
+    private String reasonPhrase;
+    private ByteArrayOutputStream errorBody;
+    private FileChannel channel;
+    private MessageDigest digest;
+    private long size;
+
+    FileResponseConsumer(Path target, long maxBytes, ByteBuffer buffer) {
+        this.target = target;
+        this.maxBytes = maxBytes;
+        this.buffer = buffer;
+    }
+
+    @Override
+    protected void start(HttpResponse response, ContentType contentType) throws IOException {
+        code = response.getCode();
+        reasonPhrase = response.getReasonPhrase();
+        if (code < 200 || code >= 300) {
+            errorBody = new ByteArrayOutputStream();
+            return;
+        }
+        Header length = response.getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+        if (length != null && Long.parseLong(length.getValue().trim()) > maxBytes) {
+            throw new ContentTooLongException("Response of %s bytes exceeds the limit of %d", length.getValue(), maxBytes);
+        }
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        // A retried attempt starts the file over
+        channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.clear();
+    }
+
+    @Override
+    protected int capacityIncrement() {
+        return buffer.capacity();
+    }
+
+    @Override
+    protected void data(ByteBuffer src, boolean endOfStream) throws IOException {
+        if (errorBody != null) {
+            int n = Math.min(src.remaining(), MAX_ERROR_BODY - errorBody.size());
+            for (int i = 0; i < n; i++) {
+                errorBody.write(src.get());
+            }
+            src.position(src.limit());
+            return;
+        }
+        while (src.hasRemaining()) {
+            int limit = src.limit();
+            src.limit(src.position() + Math.min(src.remaining(), buffer.remaining()));
+            buffer.put(src);
+            src.limit(limit);
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+        }
+        if (endOfStream) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        size += buffer.remaining();
+        if (size > maxBytes) {
+            throw new ContentTooLongException("Response exceeds the limit of %d bytes", maxBytes);
+        }
+        digest.update(buffer);
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    protected Result buildResult() {
+        // Closed before the result is handed out, not whenever the exchange releases us
+        releaseResources();
+        if (errorBody != null) {
+            return new Result(code, reasonPhrase, errorBody.toByteArray(), 0, null);
+        }
+        return new Result(code, reasonPhrase, null, size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        super.failed(cause);
+        releaseResources();
+    }
+
+    @Override
+    public void releaseResources() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // A partial file is discarded by the caller anyway
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.whatsapp.chatbot.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import org.apache.hc.core5.http.ContentTooLongException;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Reads the HTTP status and Graph API error code out of a failed call, from either the blocking or the
+ * async client. Graph errors look like {@code {"error":{"code":130429,"message":"..."}}}.
+ */
+public final class GraphApiErrors {
+
+    /**
+     * Per phone number throughput exceeded (cloud API and generic Graph rate limits)
+     */
+    private static final Set<Integer> THROUGHPUT_CODES = Set.of(4, 80007, 130429);
+    /**
+     * Too many messages to the same recipient in a short time
+     */
+    private static final int PAIR_RATE_CODE = 131056;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private GraphApiErrors() {
+    }
+
+    /**
+     * The HTTP error response behind a failure, unwrapping client and async wrappers; null if there was none
+     */
+    public static RestClientResponseException responseOf(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof RestClientResponseException response) {
+                return response;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * HTTP status of the error response, or -1 if the call failed without one
+     */
+    public static int statusOf(Throwable failure) {
+        RestClientResponseException response = responseOf(failure);
+        return response == null ? -1 : response.getStatusCode().value();
+    }
+
+    /**
+     * The {@code error.code} of the Graph error body, or -1 if absent
+     */
+    public static int codeOf(Throwable failure) {
+        JsonNode code = errorOf(failure).path("code");
+        return code.isInt() ? code.intValue() : -1;
+    }
+
+    /**
+     * The Graph error's {@code error.message}, else the message of the failure's root cause
+     */
+    public static String messageOf(Throwable failure) {
+        JsonNode message = errorOf(failure).path("message");
+        return message.isTextual() ? message.textValue() : NestedExceptionUtils.getMostSpecificCause(failure).getMessage();
+    }
+
+    private static JsonNode errorOf(Throwable failure) {
+        RestClientResponseException response = responseOf(failure);
+        if (response == null || response.getResponseBodyAsByteArray().length == 0) {
+            return MissingNode.getInstance();
+        }
+        try {
+            return MAPPER.readTree(response.getResponseBodyAsByteArray()).path("error");
+        } catch (IOException e) {
+            return MissingNode.getInstance();
+        }
+    }
+
+    /**
+     * The sending phone number is over its throughput limit
+     */
+    public static boolean isThroughputLimited(Throwable failure) {
+        int code = codeOf(failure);
+        return THROUGHPUT_CODES.contains(code) || (statusOf(failure) == 429 && code != PAIR_RATE_CODE);
+    }
+
+    /**
+     * The recipient has had too many messages from this number recently
+     */
+    public static boolean isPairRateLimited(Throwable failure) {
+        return codeOf(failure) == PAIR_RATE_CODE;
+    }
+
+    /**
+     * Worth another attempt: the Graph API was unreachable, failed on its side or throttled us
+     */
+    public static boolean isRetryable(Throwable failure) {
+        return isOutage(failure) || isThroughputLimited(failure);
+    }
+
+    /**
+     * The Graph API was unreachable, timed out or answered 5xx; 4xx answers show it is up
+     */
+    public static boolean isOutage(Throwable failure) {
+        RestClientResponseException response = responseOf(failure);
+        if (response != null) {
+            return response.getStatusCode().is5xxServerError();
+        }
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            // A body we could not parse, or one over our own size limit, fails the same way next time
+            if (t instanceof CancellationException || t instanceof JsonProcessingException
+                    || t instanceof ContentTooLongException) {
+                return false;
+            }
+            if (t instanceof IOException || t instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,26 @@
+package com.whatsapp.chatbot.client;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Circuit breaker state as the {@code graphApi} health component. Always UP: webhooks are still
+ * accepted and stored while the Graph API is down, so an open circuit must not take the instance
+ * out of rotation.
+ */
+@Component
+@RequiredArgsConstructor
+public class GraphApiHealthIndicator implements HealthIndicator {
+
+    private final GraphApiResilience resilience;
+
+    @Override
+    public Health health() {
+        return Health.up()
+                .withDetail("circuit", resilience.state())
+                .withDetail("failureRate", resilience.failureRate())
+                .build();
+    }
+}
@@ -0,0 +1,189 @@
+package com.whatsapp.chatbot.client;
+
+import com.whatsapp.chatbot.concurrent.CircuitBreaker;
+import com.whatsapp.chatbot.config.ResilienceConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Retries and circuit breaking shared by every Graph API call. Retryable failures (see
+ * {@link GraphApiErrors#isRetryable}) are attempted again after a full-jitter exponential backoff;
+ * outages (5xx, I/O, timeouts) feed the circuit breaker, which refuses calls while the API is down
+ * instead of letting each one wait out its timeouts.
+ */
+@Slf4j
+@Component
+public class GraphApiResilience {
+
+    private final ResilienceConfig.Retry retry;
+    private final CircuitBreaker breaker;
+    private final Counter retries;
+    private final Counter rejected;
+
+    public GraphApiResilience(ResilienceConfig config, MeterRegistry meterRegistry) {
+        this.retry = config.getRetry();
+        ResilienceConfig.Breaker settings = config.getCircuitBreaker();
+        this.breaker = settings.isEnabled()
+                ? new CircuitBreaker(settings.getWindowSize(), settings.getMinimumCalls(),
+                        settings.getFailureRateThreshold(), settings.getOpenDuration().toNanos(),
+                        settings.getHalfOpenProbes())
+                : null;
+        this.retries = Counter.builder("whatsapp.graph.retries")
+                .description("Graph API calls attempted again after a retryable failure")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("whatsapp.graph.circuit.rejected")
+                .description("Graph API calls refused while the circuit was open")
+                .register(meterRegistry);
+        Gauge.builder("whatsapp.graph.circuit.state", this, r -> r.state().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run a blocking call, retrying on the calling thread
+     */
+    public <T> T call(Supplier<T> call) {
+        for (int attempt = 1; ; attempt++) {
+            acquire();
+            try {
+                T result = call.get();
+                onSuccess();
+                return result;
+            } catch (RuntimeException e) {
+                record(e);
+                if (attempt >= retry.getMaxAttempts() || !GraphApiErrors.isRetryable(e)) {
+                    throw e;
+                }
+                retries.increment();
+                try {
+                    TimeUnit.NANOSECONDS.sleep(backoffNanos(attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> call) {
+        return callAsync(call, GraphApiErrors::isRetryable);
+    }
+
+    /**
+     * Run a non-blocking call; retries are scheduled rather than slept. Completing the returned future
+     * early cancels the attempt in flight and any further retries.
+     */
+    public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> call, Predicate<Throwable> retryable) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(call, retryable, result, 1);
+        return result;
+    }
+
+    private <T> void attempt(Supplier<CompletableFuture<T>> call, Predicate<Throwable> retryable,
+                             CompletableFuture<T> result, int attempt) {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            acquire();
+        } catch (CircuitOpenException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        CompletableFuture<T> pending;
+        try {
+            pending = call.get();
+        } catch (RuntimeException e) {
+            // Thrown before a request went out, e.g. by a client already shut down; it still holds a permit
+            failed(call, retryable, result, attempt, e);
+            return;
+        }
+        result.whenComplete((response, failure) -> pending.cancel(true));
+        pending.whenComplete((response, failure) -> {
+            if (failure == null) {
+                onSuccess();
+                result.complete(response);
+                return;
+            }
+            failed(call, retryable, result, attempt,
+                    failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure);
+        });
+    }
+
+    private <T> void failed(Supplier<CompletableFuture<T>> call, Predicate<Throwable> retryable,
+                            CompletableFuture<T> result, int attempt, Throwable cause) {
+        record(cause);
+        if (attempt >= retry.getMaxAttempts() || !retryable.test(cause) || result.isDone()) {
+            result.completeExceptionally(cause);
+            return;
+        }
+        retries.increment();
+        CompletableFuture.delayedExecutor(backoffNanos(attempt), TimeUnit.NANOSECONDS)
+                .execute(() -> attempt(call, retryable, result, attempt + 1));
+    }
+
+    public CircuitBreaker.State state() {
+        return breaker == null ? CircuitBreaker.State.CLOSED : breaker.state();
+    }
+
+    public double failureRate() {
+        return breaker == null ? 0 : breaker.failureRate();
+    }
+
+    private void acquire() {
+        if (breaker != null && !breaker.tryAcquire()) {
+            rejected.increment();
+            throw new CircuitOpenException();
+        }
+    }
+
+    private void onSuccess() {
+        if (breaker != null) {
+            breaker.onSuccess();
+        }
+    }
+
+    // Only outages count against the circuit; a 4xx or 429 shows the API is up
+    private void record(Throwable failure) {
+        if (breaker == null) {
+            return;
+        }
+        CircuitBreaker.State before = breaker.state();
+        if (failure instanceof CancellationException) {
+            breaker.release();
+        } else if (GraphApiErrors.isOutage(failure)) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+        if (before != CircuitBreaker.State.OPEN && breaker.state() == CircuitBreaker.State.OPEN) {
+            log.warn("Graph API circuit opened after {}",
+                    NestedExceptionUtils.getMostSpecificCause(failure).toString());
+        }
+    }
+
+    // Full jitter: uniform in [0, min(max, initial * multiplier^(attempt - 1))]
+    private long backoffNanos(int attempt) {
+        double ceiling = retry.getInitialBackoff().toNanos() * Math.pow(retry.getMultiplier(), attempt - 1);
+        long cap = (long) Math.min(retry.getMaxBackoff().toNanos(), ceiling);
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    public static class CircuitOpenException extends WhatsAppClient.WhatsAppClientException {
+        public CircuitOpenException() {
+            super("Graph API circuit is open; call not attempted", null);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.whatsapp.chatbot.client;
+
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A multipart/form-data body of a few text fields and one file part, produced on the I/O reactor as
+ * the connection can take it. The file is read straight from its channel into the caller's buffer,
+ * so nothing larger than that buffer is ever in memory, and the content length is known up front.
+ * One producer per attempt: it reads the file once.
+ */
+final class MultipartFileProducer implements AsyncEntityProducer {
+
+    private final Path file;
+    private final long fileSize;
+    private final ByteBuffer buffer;
+    private final String contentType;
+    private final byte[] head;
+    private final byte[] tail;
+    private FileChannel channel;
+    private long read;
+    private boolean headWritten;
+    private boolean tailWritten;
+
+    MultipartFileProducer(Map<String, String> fields, Path file, long fileSize, String fileName,
+                          String fileType, ByteBuffer buffer) {
+        String boundary = "----chatbot" + UUID.randomUUID().toString().replace("-", "");
+        this.file = file;
+        this.fileSize = fileSize;
+        this.buffer = buffer;
+        this.contentType = "multipart/form-data; boundary=" + boundary;
+        StringBuilder head = new StringBuilder();
+        fields.forEach((name, value) -> head.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(name).append("\"\r\n\r\n")
+                .append(value).append("\r\n"));
+        head.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"file\"; filename=\"")
+                .append(quote(fileName)).append("\"\r\n")
+                .append("Content-Type: ").append(fileType).append("\r\n\r\n");
+        this.head = head.toString().getBytes(StandardCharsets.UTF_8);
+        this.tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        if (this.head.length > buffer.capacity() || tail.length > buffer.capacity()) {
+            throw new IllegalArgumentException("Multipart headers do not fit the transfer buffer");
+        }
+        // Empty until the first produce call fills it
+        buffer.clear().limit(0);
+    }
+
+    @Override
+    public void produce(DataStreamChannel out) throws IOException {
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                if (tailWritten) {
+                    out.endStream();
+                    return;
+                }
+                fill();
+            }
+            out.write(buffer);
+            if (buffer.hasRemaining()) {
+                // The connection is full; the reactor calls back once it can take more
+                return;
+            }
+        }
+    }
+
+    private void fill() throws IOException {
+        buffer.clear();
+        if (!headWritten) {
+            buffer.put(head);
+            headWritten = true;
+        }
+        if (read < fileSize) {
+            if (channel == null) {
+                channel = FileChannel.open(file, StandardOpenOption.READ);
+            }
+            int limit = buffer.limit();
+            buffer.limit((int) Math.min(limit, buffer.position() + fileSize - read));
+            while (buffer.hasRemaining()) {
+                int n = channel.read(buffer);
+                if (n < 0) {
+                    throw new IOException(file + " shrank while being uploaded");
+                }
+                read += n;
+            }
+            buffer.limit(limit);
+        }
+        if (read == fileSize && buffer.remaining() >= tail.length) {
+            buffer.put(tail);
+            tailWritten = true;
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public int available() {
+        long remaining = buffer.remaining() + fileSize - read + (tailWritten ? 0 : tail.length);
+        return (int) Math.min(Integer.MAX_VALUE, remaining);
+    }
+
+    @Override
+    public long getContentLength() {
+        return head.length + fileSize + tail.length;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return null;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return false;
+    }
+
+    @Override
+    public Set<String> getTrailerNames() {
+        return null;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        releaseResources();
+    }
+
+    @Override
+    public void releaseResources() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Read-only; nothing is lost
+            }
+            channel = null;
+        }
+    }
+
+    // Quotes and line breaks would end the header early
+    private static String quote(String fileName) {
+        return fileName.replace("\\", "\\\\").replace("\"", "\\\"").replace("\r", "").replace("\n", "");
+    }
+}
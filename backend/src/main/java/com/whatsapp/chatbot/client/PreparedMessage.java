@@ -0,0 +1,119 @@
+package com.whatsapp.chatbot.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.whatsapp.chatbot.dto.WhatsAppMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A message serialized ahead of time with the recipient left out: the JSON before and after the
+ * {@code to} value is kept as bytes, and sending only splices the recipient in between.
+ */
+public final class PreparedMessage {
+
+    /**
+     * Stand-in for the recipient in a message DTO passed to {@link WhatsAppClient#prepare}
+     */
+    public static final String RECIPIENT = "{{recipient}}";
+    private static final byte[] MARKER_BYTES = RECIPIENT.getBytes(StandardCharsets.UTF_8);
+
+    private final String text;
+    private final byte[] head;
+    private final byte[] tail;
+
+    private PreparedMessage(String text, byte[] head, byte[] tail) {
+        this.text = text;
+        this.head = head;
+        this.tail = tail;
+    }
+
+    /**
+     * Serialize a text message with the same mapper and DTO as an unprepared send, so the bytes match
+     */
+    static PreparedMessage text(ObjectMapper objectMapper, String text) {
+        WhatsAppMessage message = WhatsAppMessage.builder()
+                .messagingProduct("whatsapp")
+                .to(RECIPIENT)
+                .type("text")
+                .text(WhatsAppMessage.Text.builder().body(text).build())
+                .build();
+        return of(objectMapper, message, text);
+    }
+
+    /**
+     * @param message DTO whose recipient is {@link #RECIPIENT}
+     * @param text    what the message says, for logs and the chat log
+     */
+    static PreparedMessage of(ObjectMapper objectMapper, Object message, String text) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize message", e);
+        }
+        // The DTOs declare "to" before the content, so the first marker is the recipient even if the text has one
+        int at = indexOf(json, MARKER_BYTES);
+        if (at < 0) {
+            throw new IllegalStateException("Recipient not found in serialized message");
+        }
+        return new PreparedMessage(text,
+                Arrays.copyOfRange(json, 0, at),
+                Arrays.copyOfRange(json, at + MARKER_BYTES.length, json.length));
+    }
+
+    public String text() {
+        return text;
+    }
+
+    /**
+     * The request body for one recipient; phone numbers are copied straight in, anything else is
+     * JSON-escaped first
+     */
+    public byte[] render(String to) {
+        byte[] recipient = isPlain(to) ? null : JsonStringEncoder.getInstance().quoteAsUTF8(to);
+        int length = recipient == null ? to.length() : recipient.length;
+        byte[] body = new byte[head.length + length + tail.length];
+        System.arraycopy(head, 0, body, 0, head.length);
+        if (recipient == null) {
+            for (int i = 0; i < length; i++) {
+                body[head.length + i] = (byte) to.charAt(i);
+            }
+        } else {
+            System.arraycopy(recipient, 0, body, head.length, length);
+        }
+        System.arraycopy(tail, 0, body, head.length + length, tail.length);
+        return body;
+    }
+
+    // Printable ASCII that JSON needs no escape for
+    private static boolean isPlain(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 || c > 0x7e || c == '"' || c == '\\') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "PreparedMessage[" + text + "]";
+    }
+}
@@ -1,55 +1,338 @@
 package com.whatsapp.chatbot.client;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.whatsapp.chatbot.dto.MediaInfo;
 import com.whatsapp.chatbot.dto.WhatsAppMessage;
 import com.whatsapp.chatbot.dto.WhatsAppResponse;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http.message.BasicHeader;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncRequestBuilder;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.UnknownHttpStatusCodeException;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class WhatsAppClient {
 
     private final RestTemplate restTemplate;
-    private final String baseUrl;
-    private final String accessToken;
-    private final String apiVersion;
+    private final CloseableHttpAsyncClient asyncClient;
+    private final GraphApiResilience resilience;
+    private final ObjectMapper objectMapper;
     private final String phoneNumberId;
+    // Fixed for the client's lifetime, so built once instead of per message
+    private final String messagesUrl;
+    private final URI messagesUri;
+    private final String versionUrl;
+    private final URI mediaUri;
+    private final HttpHeaders jsonHeaders;
+    private final Header authorization;
 
-    public WhatsAppResponse sendMessage(String to, String message) {
-        String url = UriComponentsBuilder.fromHttpUrl(baseUrl)
+    public WhatsAppClient(RestTemplate restTemplate, CloseableHttpAsyncClient asyncClient,
+                          GraphApiResilience resilience, ObjectMapper objectMapper, String baseUrl,
+                          String accessToken, String apiVersion, String phoneNumberId) {
+        this.restTemplate = restTemplate;
+        this.asyncClient = asyncClient;
+        this.resilience = resilience;
+        this.objectMapper = objectMapper;
+        this.phoneNumberId = phoneNumberId;
+        this.messagesUrl = UriComponentsBuilder.fromHttpUrl(baseUrl)
                 .path("/{version}/{phone-number-id}/messages")
                 .buildAndExpand(apiVersion, phoneNumberId)
                 .toUriString();
-
+        this.messagesUri = URI.create(messagesUrl);
+        this.versionUrl = UriComponentsBuilder.fromHttpUrl(baseUrl)
+                .path("/{version}")
+                .buildAndExpand(apiVersion)
+                .toUriString();
+        this.mediaUri = URI.create(versionUrl + "/" + phoneNumberId + "/media");
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.setBearerAuth(accessToken);
+        this.jsonHeaders = HttpHeaders.readOnlyHttpHeaders(headers);
+        this.authorization = new BasicHeader(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken);
+    }
 
-        WhatsAppMessage request = WhatsAppMessage.builder()
-                .messagingProduct("whatsapp")
-                .to(to)
-                .type("text")
-                .text(WhatsAppMessage.Text.builder().body(message).build())
-                .build();
-
-        HttpEntity<WhatsAppMessage> entity = new HttpEntity<>(request, headers);
+    public WhatsAppResponse sendMessage(String to, String message) {
+        HttpEntity<WhatsAppMessage> entity = buildTextRequest(to, message);
         
         try {
             log.debug("Sending WhatsApp message to {}: {}", to, message);
-            return restTemplate.postForObject(url, entity, WhatsAppResponse.class);
+            return resilience.call(() -> restTemplate.postForObject(messagesUrl, entity, WhatsAppResponse.class));
         } catch (Exception e) {
             log.error("Failed to send WhatsApp message: {}", e.getMessage(), e);
             throw new WhatsAppClientException("Failed to send message", e);
         }
     }
 
+    /**
+     * Non-blocking {@link #sendMessage}: no thread waits for the Graph API. Completing the future
+     * early, e.g. with {@code orTimeout} or {@code cancel}, cancels the request. Dependent stages run
+     * on the client's I/O threads unless given an executor, so they must not block.
+     */
+    public CompletableFuture<WhatsAppResponse> sendMessageAsync(String to, String message) {
+        return sendMessageAsync(to, prepareText(message));
+    }
+
+    /**
+     * {@link #sendMessageAsync(String, String)} for a message serialized ahead of time
+     */
+    public CompletableFuture<WhatsAppResponse> sendMessageAsync(String to, PreparedMessage message) {
+        return sendAsync(to, message, GraphApiErrors::isRetryable);
+    }
+
+    /**
+     * {@link #sendMessageAsync} for callers that pace sends themselves: throttling errors are returned
+     * at once instead of being retried
+     */
+    public CompletableFuture<WhatsAppResponse> sendPacedMessageAsync(String to, PreparedMessage message) {
+        return sendAsync(to, message, GraphApiErrors::isOutage);
+    }
+
+    /**
+     * Serialize a text reply once so it can be sent to any number of recipients
+     */
+    public PreparedMessage prepareText(String message) {
+        return PreparedMessage.text(objectMapper, message);
+    }
+
+    /**
+     * Serialize any message DTO whose recipient is {@link PreparedMessage#RECIPIENT}
+     */
+    public PreparedMessage prepare(Object message, String text) {
+        return PreparedMessage.of(objectMapper, message, text);
+    }
+
+    private CompletableFuture<WhatsAppResponse> sendAsync(String to, PreparedMessage message,
+                                                          Predicate<Throwable> retryable) {
+        log.debug("Sending WhatsApp message asynchronously to {}: {}", to, message.text());
+        byte[] body = message.render(to);
+        CompletableFuture<WhatsAppResponse> result = resilience.callAsync(
+                () -> execute(messageRequest(body), WhatsAppResponse.class), retryable);
+        result.whenComplete((response, failure) -> {
+            if (failure != null && !(failure instanceof CancellationException)) {
+                log.warn("Failed to send WhatsApp message to {}: {}", to, failure.getMessage());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Upload a file as media without reading it into memory: the multipart body is streamed from disk
+     * through {@code buffer}, which the caller must not touch until the future completes
+     *
+     * @return the media id to send it with
+     */
+    public CompletableFuture<String> uploadMediaAsync(Path file, String mimeType, String fileName, ByteBuffer buffer) {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new WhatsAppClientException("Failed to upload media", e));
+        }
+        log.debug("Uploading {} ({}, {} bytes) as WhatsApp media", fileName, mimeType, size);
+        Map<String, String> fields = Map.of("messaging_product", "whatsapp", "type", mimeType);
+        return resilience.callAsync(() -> {
+            AsyncRequestProducer request = AsyncRequestBuilder.post(mediaUri)
+                    .addHeader(authorization)
+                    .setEntity(new MultipartFileProducer(fields, file, size, fileName, mimeType, buffer))
+                    .build();
+            return exchange(request, SimpleResponseConsumer.create(),
+                    response -> readResponse(response, JsonNode.class).path("id").asText());
+        }, GraphApiErrors::isRetryable);
+    }
+
+    /**
+     * Download URL, type, size and SHA-256 of a media id, e.g. one received in a webhook
+     */
+    public CompletableFuture<MediaInfo> getMediaAsync(String mediaId) {
+        URI uri = UriComponentsBuilder.fromHttpUrl(versionUrl).pathSegment(mediaId).build().encode().toUri();
+        return resilience.callAsync(() -> {
+            SimpleHttpRequest request = SimpleHttpRequest.create(Method.GET, uri);
+            request.setHeader(authorization);
+            return execute(request, MediaInfo.class);
+        }, GraphApiErrors::isRetryable);
+    }
+
+    /**
+     * Stream media into {@code target} through {@code buffer}, which the caller must not touch until the
+     * future completes. Fails if the file grows past {@code maxBytes} or does not match the SHA-256
+     * Graph reported; a retried attempt rewrites the file from the start.
+     *
+     * @return bytes written
+     */
+    public CompletableFuture<Long> downloadMediaAsync(MediaInfo media, Path target, long maxBytes, ByteBuffer buffer) {
+        URI uri = URI.create(media.getUrl());
+        return resilience.callAsync(() -> {
+            AsyncRequestProducer request = AsyncRequestBuilder.get(uri)
+                    .addHeader(authorization)
+                    .build();
+            return exchange(request, new FileResponseConsumer(target, maxBytes, buffer), result -> {
+                if (!result.isSuccessful()) {
+                    throw statusException(result.code(), result.reasonPhrase(), result.errorBody());
+                }
+                if (media.getSha256() != null && !media.getSha256().equalsIgnoreCase(result.sha256())) {
+                    throw new IOException("Downloaded media " + media.getId() + " does not match its SHA-256");
+                }
+                return result.size();
+            });
+        }, GraphApiErrors::isRetryable);
+    }
+
+    /**
+     * POST a JSON body to the Graph API without blocking; fails with {@link WhatsAppClientException}
+     * wrapping the same HTTP status exceptions {@link RestTemplate} throws. A single attempt; wrap it in
+     * {@link GraphApiResilience#callAsync} for retries.
+     */
+    public <T> CompletableFuture<T> postAsync(String url, HttpHeaders headers, Object body, Class<T> responseType) {
+        SimpleHttpRequest request;
+        try {
+            SimpleRequestBuilder builder = SimpleRequestBuilder.post(url)
+                    .setBody(objectMapper.writeValueAsBytes(body), ContentType.APPLICATION_JSON);
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                if (!HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(header.getKey())) {
+                    header.getValue().forEach(value -> builder.addHeader(header.getKey(), value));
+                }
+            }
+            request = builder.build();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new WhatsAppClientException("Failed to send message", e));
+        }
+        return execute(request, responseType);
+    }
+
+    private SimpleHttpRequest messageRequest(byte[] body) {
+        SimpleHttpRequest request = SimpleHttpRequest.create(Method.POST, messagesUri);
+        request.setHeader(authorization);
+        request.setBody(body, ContentType.APPLICATION_JSON);
+        return request;
+    }
+
+    private <T> CompletableFuture<T> execute(SimpleHttpRequest request, Class<T> responseType) {
+        return exchange(SimpleRequestProducer.create(request), SimpleResponseConsumer.create(),
+                response -> readResponse(response, responseType));
+    }
+
+    private <R, T> CompletableFuture<T> exchange(AsyncRequestProducer request, AsyncResponseConsumer<R> consumer,
+                                                 ResponseReader<R, T> reader) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<R> exchange = asyncClient.execute(request, consumer, new FutureCallback<>() {
+            @Override
+            public void completed(R response) {
+                try {
+                    result.complete(reader.read(response));
+                } catch (Exception e) {
+                    failed(e);
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                // Logged at debug: the attempt may still be retried
+                log.debug("Failed to send WhatsApp message: {}", e.getMessage(), e);
+                result.completeExceptionally(new WhatsAppClientException("Failed to send message", e));
+            }
+
+            @Override
+            public void cancelled() {
+                result.completeExceptionally(new CancellationException("Graph API request cancelled"));
+            }
+        });
+        // A caller timeout or cancel must not leave the request holding a connection
+        result.whenComplete((response, failure) -> {
+            if (failure != null) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private <T> T readResponse(SimpleHttpResponse response, Class<T> responseType) throws IOException {
+        byte[] body = response.getBodyBytes();
+        if (response.getCode() < 200 || response.getCode() >= 300) {
+            throw statusException(response.getCode(), response.getReasonPhrase(), body);
+        }
+        return body == null || body.length == 0 ? null : objectMapper.readValue(body, responseType);
+    }
+
+    // The same exceptions RestTemplate throws, so GraphApiErrors reads both clients alike
+    private static RuntimeException statusException(int code, String reasonPhrase, byte[] body) {
+        HttpStatusCode status = HttpStatusCode.valueOf(code);
+        if (status.is4xxClientError()) {
+            return HttpClientErrorException.create(status, reasonPhrase, null, body, StandardCharsets.UTF_8);
+        }
+        if (status.is5xxServerError()) {
+            return HttpServerErrorException.create(status, reasonPhrase, null, body, StandardCharsets.UTF_8);
+        }
+        return new UnknownHttpStatusCodeException(code, reasonPhrase, null, body, StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface ResponseReader<R, T> {
+        T read(R response) throws IOException;
+    }
+
+    /**
+     * The sending phone number; Graph API rate limits apply per phone number id
+     */
+    public String phoneNumberId() {
+        return phoneNumberId;
+    }
+
+    /**
+     * Graph API endpoint for sending messages from the configured phone number
+     */
+    public String messagesUrl() {
+        return messagesUrl;
+    }
+
+    /**
+     * Outbound text message request with auth headers
+     */
+    public HttpEntity<WhatsAppMessage> buildTextRequest(String to, String message) {
+        WhatsAppMessage request = WhatsAppMessage.builder()
+                .messagingProduct("whatsapp")
+                .to(to)
+                .type("text")
+                .text(WhatsAppMessage.Text.builder().body(message).build())
+                .build();
+
+        return new HttpEntity<>(request, jsonHeaders);
+    }
+
     public static class WhatsAppClientException extends RuntimeException {
         public WhatsAppClientException(String message, Throwable cause) {
             super(message, cause);
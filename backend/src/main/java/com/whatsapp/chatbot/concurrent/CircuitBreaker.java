@@ -0,0 +1,169 @@
+package com.whatsapp.chatbot.concurrent;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Count-based circuit breaker. Closed, it tracks the outcome of the last {@code windowSize} calls and
+ * opens once at least {@code minimumCalls} were seen and the failure rate reaches the threshold. Open,
+ * it refuses calls for {@code openNanos}, then lets {@code halfOpenProbes} calls through: if all of
+ * them succeed it closes again, any failure reopens it.
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenProbes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] window;
+    private int next;
+    private int calls;
+    private int failures;
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+    private int probesIssued;
+    private int probesSucceeded;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openNanos,
+                          int halfOpenProbes) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize || failureRateThreshold <= 0
+                || failureRateThreshold > 1 || openNanos <= 0 || halfOpenProbes < 1) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings");
+        }
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openNanos;
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    /**
+     * Ask to make a call; a permitted call must be followed by exactly one of {@link #onSuccess},
+     * {@link #onFailure} or {@link #release}
+     */
+    public boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probesIssued = 0;
+                probesSucceeded = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesIssued >= halfOpenProbes) {
+                    return false;
+                }
+                probesIssued++;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                if (++probesSucceeded >= halfOpenProbes) {
+                    close();
+                }
+            } else if (state == State.CLOSED) {
+                record(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onFailure() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                open();
+            } else if (state == State.CLOSED) {
+                record(true);
+                if (calls >= minimumCalls && failures >= failureRateThreshold * calls) {
+                    open();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Give a permit back without a verdict, e.g. when the caller abandoned the call
+     */
+    public void release() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && probesIssued > probesSucceeded) {
+                probesIssued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State state() {
+        return state;
+    }
+
+    /**
+     * Failure rate over the current window; zero while open or half-open
+     */
+    public double failureRate() {
+        lock.lock();
+        try {
+            return calls == 0 ? 0 : (double) failures / calls;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(boolean failure) {
+        if (calls == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        window[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        resetWindow();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        next = 0;
+        calls = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,43 @@
+package com.whatsapp.chatbot.concurrent;
+
+/**
+ * Queue overload detection after CoDel: a queue is overloaded once every item has waited longer than
+ * {@code target} for at least {@code interval}, i.e. the queue is standing rather than absorbing a burst.
+ * It recovers on the first item dequeued under target, or when the queue drains.
+ */
+public final class CoDelDetector {
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final long targetNanos;
+    private final long intervalNanos;
+
+    // Written by dequeuing threads; a lost update only shifts the decision by one sample
+    private volatile long aboveTargetSince = NONE;
+    private volatile boolean overloaded;
+    private volatile boolean drained = true;
+
+    public CoDelDetector(long targetNanos, long intervalNanos) {
+        this.targetNanos = targetNanos;
+        this.intervalNanos = intervalNanos;
+    }
+
+    /**
+     * Record the time an item spent queued and how many are still waiting behind it
+     */
+    public void onDequeue(long sojournNanos, int remaining, long now) {
+        drained = remaining == 0;
+        if (sojournNanos < targetNanos) {
+            aboveTargetSince = NONE;
+            overloaded = false;
+        } else if (aboveTargetSince == NONE) {
+            aboveTargetSince = now;
+        } else if (now - aboveTargetSince >= intervalNanos) {
+            overloaded = true;
+        }
+    }
+
+    public boolean isOverloaded() {
+        return overloaded && !drained;
+    }
+}
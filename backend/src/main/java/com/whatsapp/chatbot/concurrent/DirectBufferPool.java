@@ -0,0 +1,73 @@
+package com.whatsapp.chatbot.concurrent;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed number of equally sized direct buffers, allocated on first use and never freed. Direct
+ * memory is reclaimed only when the GC collects the owning buffer, so recycling a bounded set keeps
+ * off-heap use at {@code buffers x bufferSize}. Handing I/O a direct buffer also avoids the copy into,
+ * and the caching of, the JDK's per-thread temporary direct buffers that heap buffers go through.
+ */
+public class DirectBufferPool {
+
+    private final int bufferSize;
+    private final int maxBuffers;
+    private final BlockingQueue<ByteBuffer> free;
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    public DirectBufferPool(int bufferSize, int maxBuffers) {
+        if (bufferSize <= 0 || maxBuffers <= 0) {
+            throw new IllegalArgumentException("bufferSize and maxBuffers must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.maxBuffers = maxBuffers;
+        this.free = new ArrayBlockingQueue<>(maxBuffers);
+    }
+
+    /**
+     * A cleared buffer, waiting up to {@code timeout} for one to be released when all are in use
+     *
+     * @return null if none became free in time
+     */
+    public ByteBuffer acquire(Duration timeout) throws InterruptedException {
+        ByteBuffer buffer = free.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        for (int n = allocated.get(); n < maxBuffers; n = allocated.get()) {
+            if (allocated.compareAndSet(n, n + 1)) {
+                return ByteBuffer.allocateDirect(bufferSize);
+            }
+        }
+        return free.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Return a buffer from {@link #acquire}; it must not be touched afterwards
+     */
+    public void release(ByteBuffer buffer) {
+        buffer.clear();
+        free.offer(buffer);
+    }
+
+    /**
+     * Give up a buffer from {@link #acquire} that something else may still be using; a fresh one
+     * takes its place and this one is freed once unreachable
+     */
+    public void discard(ByteBuffer buffer) {
+        allocated.decrementAndGet();
+    }
+
+    public int inUse() {
+        return allocated.get() - free.size();
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+}
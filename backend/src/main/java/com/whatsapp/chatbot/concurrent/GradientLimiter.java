@@ -0,0 +1,101 @@
+package com.whatsapp.chatbot.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive concurrency limit in the style of Netflix's Gradient2: the limit shrinks when the short-term
+ * latency rises above the long-term baseline (work is queueing somewhere downstream) and grows by about
+ * sqrt(limit) while latency stays near the baseline.
+ */
+public final class GradientLimiter {
+
+    private static final double SHORT_ALPHA = 0.2;
+    private static final double LONG_ALPHA = 2.0 / (600 + 1);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private double shortRtt;
+    private double longRtt;
+
+    /**
+     * @param tolerance how far short-term latency may exceed the baseline before the limit shrinks, e.g. 2.0
+     * @param smoothing weight of each new limit estimate, in (0, 1]
+     */
+    public GradientLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing) {
+        if (minLimit < 1 || maxLimit < minLimit || tolerance < 1.0 || smoothing <= 0 || smoothing > 1) {
+            throw new IllegalArgumentException("Invalid limiter settings");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Take a slot if fewer than {@link #limit()} are in flight; a successful call must be paired with
+     * {@link #release(long)}
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Return a slot and feed the observed latency into the limit
+     */
+    public void release(long rttNanos) {
+        int inFlightAtEnd = inFlight.getAndDecrement();
+        if (rttNanos <= 0 || !lock.tryLock()) {
+            // A concurrent update is in progress; one sample more or less does not move the averages
+            return;
+        }
+        try {
+            if (longRtt == 0) {
+                shortRtt = rttNanos;
+                longRtt = rttNanos;
+                return;
+            }
+            shortRtt += SHORT_ALPHA * (rttNanos - shortRtt);
+            longRtt += LONG_ALPHA * (rttNanos - longRtt);
+            // After a sustained slowdown the baseline drifts up; pull it back once latency recovers
+            if (longRtt > 2 * shortRtt) {
+                longRtt *= 0.95;
+            }
+            // Do not grow while the limit is not what holds requests back
+            double current = limit;
+            if (inFlightAtEnd < current / 2) {
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+            double estimate = current * gradient + Math.sqrt(current);
+            double next = current * (1 - smoothing) + estimate * smoothing;
+            limit = Math.max(minLimit, Math.min(maxLimit, next));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,121 @@
+package com.whatsapp.chatbot.concurrent;
+
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed set of single-threaded lanes, each with its own bounded queue. Tasks are routed by key,
+ * so tasks sharing a key run one at a time in submission order while different keys run in parallel.
+ */
+public final class PartitionedExecutor {
+
+    private final ThreadPoolExecutor[] lanes;
+
+    public PartitionedExecutor(String threadNamePrefix, int laneCount, int capacityPerLane) {
+        this(threadNamePrefix, laneCount, capacityPerLane, false);
+    }
+
+    /**
+     * @param virtualThreads run each lane on a virtual thread (Java 21+), so lanes are cheap enough
+     *                       to number in the thousands and blocking I/O does not hold a platform thread
+     */
+    public PartitionedExecutor(String threadNamePrefix, int laneCount, int capacityPerLane, boolean virtualThreads) {
+        if (laneCount < 1 || capacityPerLane < 1) {
+            throw new IllegalArgumentException("laneCount and capacityPerLane must be positive");
+        }
+        this.lanes = new ThreadPoolExecutor[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            String prefix = threadNamePrefix + i + "-";
+            ThreadFactory threadFactory = virtualThreads
+                    ? new VirtualThreadTaskExecutor(prefix).getVirtualThreadFactory()
+                    : new CustomizableThreadFactory(prefix);
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacityPerLane), threadFactory,
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
+    /**
+     * Run a task on the lane owning {@code key}
+     *
+     * @throws RejectedExecutionException if that lane's queue is full or the executor is shut down
+     */
+    public void execute(Object key, Runnable task) {
+        lanes[laneOf(key)].execute(task);
+    }
+
+    public int laneOf(Object key) {
+        if (key == null) {
+            return 0;
+        }
+        int h = key.hashCode();
+        // Spread the high bits so keys differing only there do not share a lane
+        h ^= h >>> 16;
+        return Math.floorMod(h * 0x9E3779B9, lanes.length);
+    }
+
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Tasks waiting in one lane, excluding the one running
+     */
+    public int depth(int lane) {
+        return lanes[lane].getQueue().size();
+    }
+
+    public int totalDepth() {
+        int depth = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            depth += lane.getQueue().size();
+        }
+        return depth;
+    }
+
+    public int capacity() {
+        int capacity = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            capacity += lane.getQueue().size() + lane.getQueue().remainingCapacity();
+        }
+        return capacity;
+    }
+
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    /**
+     * Wait for every lane to finish, sharing one deadline; returns false on timeout
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ThreadPoolExecutor lane : lanes) {
+            if (!lane.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Interrupt running tasks and return those never started
+     */
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = new ArrayList<>();
+        for (ThreadPoolExecutor lane : lanes) {
+            pending.addAll(lane.shutdownNow());
+        }
+        return pending;
+    }
+}
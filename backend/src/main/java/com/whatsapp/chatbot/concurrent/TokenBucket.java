@@ -0,0 +1,86 @@
+package com.whatsapp.chatbot.concurrent;
+
+/**
+ * Token bucket refilled continuously at {@link #rate()} tokens per second up to {@code burst}.
+ * Not thread-safe: callers hold their own lock and pass in the current {@link System#nanoTime()}.
+ */
+public final class TokenBucket {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final double burst;
+    private double rate;
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(double rate, double burst, long now) {
+        if (rate <= 0 || burst < 1) {
+            throw new IllegalArgumentException("rate must be positive and burst at least 1");
+        }
+        this.rate = rate;
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAt = now;
+    }
+
+    public boolean tryTake(long now) {
+        refill(now);
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    public boolean hasToken(long now) {
+        refill(now);
+        return tokens >= 1;
+    }
+
+    /**
+     * Nanoseconds until a token is available, zero if one is now
+     */
+    public long nanosUntilToken(long now) {
+        refill(now);
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / rate * NANOS_PER_SECOND);
+    }
+
+    /**
+     * True once the bucket has refilled completely, i.e. it is indistinguishable from a new one
+     */
+    public boolean isFull(long now) {
+        refill(now);
+        return tokens >= burst;
+    }
+
+    /**
+     * Drop any saved-up tokens, e.g. after the server signalled we are over its limit
+     */
+    public void drain(long now) {
+        refill(now);
+        tokens = Math.min(tokens, 0);
+    }
+
+    public double rate() {
+        return rate;
+    }
+
+    /**
+     * Change the refill rate; tokens earned so far are kept
+     */
+    public void setRate(double rate, long now) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rate must be positive");
+        }
+        refill(now);
+        this.rate = rate;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - refilledAt;
+        if (elapsed > 0) {
+            tokens = Math.min(burst, tokens + elapsed / NANOS_PER_SECOND * rate);
+            refilledAt = now;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.whatsapp.chatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chatbot.broadcast")
+public class BroadcastConfig {
+
+    /**
+     * Spooled recipient lists and failure reports, one pair of files per job
+     */
+    private String directory = "data/broadcasts";
+    /**
+     * Messages a job may have queued or in flight at once; they share the outbound rate limit with
+     * chatbot replies, so keep this well below chatbot.outbound.queue-capacity
+     */
+    private int concurrency = 64;
+    /**
+     * Jobs sending at the same time; further jobs wait their turn
+     */
+    private int maxRunningJobs = 2;
+    private Duration checkpointInterval = Duration.ofSeconds(1);
+    /**
+     * On shutdown, how long to wait for messages in flight before checkpointing
+     */
+    private Duration stopTimeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,27 @@
+package com.whatsapp.chatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chatbot.dedup")
+public class DedupConfig {
+
+    private boolean enabled = true;
+    /**
+     * How long a message id is remembered
+     */
+    private Duration window = Duration.ofHours(1);
+    /**
+     * The window is split into this many rotating generations; expiry granularity is window / (generations - 1)
+     */
+    private int generations = 6;
+    /**
+     * Upper bound on heap used for remembered ids (8 bytes per slot)
+     */
+    private long maxMemoryBytes = 16L * 1024 * 1024;
+}
@@ -0,0 +1,213 @@
+package com.whatsapp.chatbot.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.Data;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pooled keep-alive HTTP clients for Graph API calls: a blocking one behind the {@link RestTemplate}
+ * and a non-blocking one for async sends
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "whatsapp.http")
+public class HttpClientConfig {
+
+    private static final String CLIENT_NAME = "graph-api";
+    private static final String ASYNC_CLIENT_NAME = "graph-api-async";
+
+    private int maxTotal = 200;
+    /**
+     * Connections to the Graph API host (whatsapp.api.base-url)
+     */
+    private int graphApiMaxConnections = 100;
+    /**
+     * Connections to any other host, e.g. media downloads
+     */
+    private int maxPerRoute = 20;
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration responseTimeout = Duration.ofSeconds(10);
+    /**
+     * Wait for a pooled connection when all are leased
+     */
+    private Duration leaseTimeout = Duration.ofSeconds(1);
+    /**
+     * Idle time after which a pooled connection is closed, unless the server asks for less
+     */
+    private Duration keepAlive = Duration.ofSeconds(60);
+    /**
+     * Connections are replaced after this long so DNS changes are picked up
+     */
+    private Duration timeToLive = Duration.ofMinutes(10);
+    /**
+     * Connections idle for longer are checked before reuse
+     */
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+    /**
+     * I/O reactor threads shared by all async sends
+     */
+    private int ioThreads = Runtime.getRuntime().availableProcessors();
+    /**
+     * Async sends queue for a connection instead of holding a thread, so they may wait longer
+     */
+    private Duration asyncLeaseTimeout = Duration.ofSeconds(30);
+
+    @Bean
+    public PoolingHttpClientConnectionManager graphApiConnectionManager(WhatsAppConfig whatsAppConfig,
+                                                                        MeterRegistry meterRegistry) {
+        Timer connectTime = Timer.builder("httpcomponents.httpclient.connect")
+                .description("Time to open a pooled connection, including the TLS handshake")
+                .tag("httpclient", CLIENT_NAME)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        PoolingHttpClientConnectionManager manager = new TimedConnectionManager(connectTime);
+        manager.setMaxTotal(maxTotal);
+        manager.setDefaultMaxPerRoute(maxPerRoute);
+        manager.setMaxPerRoute(routeOf(whatsAppConfig.getBaseUrl()), graphApiMaxConnections);
+        manager.setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(connectTimeout))
+                .setSocketTimeout(Timeout.of(responseTimeout))
+                .setTimeToLive(TimeValue.of(timeToLive))
+                .setValidateAfterInactivity(TimeValue.of(validateAfterInactivity))
+                .build());
+        // Leased, available, pending and max, tagged httpclient=graph-api
+        new PoolingHttpClientConnectionManagerMetricsBinder(manager, CLIENT_NAME).bindTo(meterRegistry);
+        return manager;
+    }
+
+    @Bean
+    public CloseableHttpClient graphApiHttpClient(PoolingHttpClientConnectionManager graphApiConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(graphApiConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(leaseTimeout))
+                        .setResponseTimeout(Timeout.of(responseTimeout))
+                        .setConnectionKeepAlive(TimeValue.of(keepAlive))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(keepAlive))
+                .build();
+    }
+
+    /**
+     * Built from Boot's builder so outbound calls are observed as http.client.requests
+     */
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient graphApiHttpClient) {
+        return builder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(graphApiHttpClient))
+                .build();
+    }
+
+    /**
+     * Same limits and timeouts as the blocking pool; HTTP/2 is negotiated over TLS where the
+     * server offers it, multiplexing sends over fewer connections
+     */
+    @Bean
+    public PoolingAsyncClientConnectionManager graphApiAsyncConnectionManager(WhatsAppConfig whatsAppConfig,
+                                                                              MeterRegistry meterRegistry) {
+        PoolingAsyncClientConnectionManager manager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(responseTimeout))
+                        .setTimeToLive(TimeValue.of(timeToLive))
+                        .setValidateAfterInactivity(TimeValue.of(validateAfterInactivity))
+                        .build())
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                        .setHandshakeTimeout(Timeout.of(connectTimeout))
+                        .build())
+                .build();
+        manager.setMaxPerRoute(routeOf(whatsAppConfig.getBaseUrl()), graphApiMaxConnections);
+        new PoolingHttpClientConnectionManagerMetricsBinder(manager, ASYNC_CLIENT_NAME).bindTo(meterRegistry);
+        return manager;
+    }
+
+    @Bean
+    public CloseableHttpAsyncClient graphApiAsyncClient(PoolingAsyncClientConnectionManager graphApiAsyncConnectionManager) {
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(graphApiAsyncConnectionManager)
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setIoThreadCount(ioThreads)
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(asyncLeaseTimeout))
+                        .setResponseTimeout(Timeout.of(responseTimeout))
+                        .setConnectionKeepAlive(TimeValue.of(keepAlive))
+                        .build())
+                // The default strategy replays 429s after a fixed pause; OutboundScheduler backs off instead
+                .disableAutomaticRetries()
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(keepAlive))
+                .build();
+        client.start();
+        return client;
+    }
+
+    // The client plans routes with the default port filled in, so limits must be keyed the same way
+    private static HttpRoute routeOf(String baseUrl) {
+        HttpHost host;
+        try {
+            host = HttpHost.create(baseUrl);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid whatsapp.api.base-url: " + baseUrl, e);
+        }
+        boolean secure = "https".equalsIgnoreCase(host.getSchemeName());
+        int port = host.getPort() > 0 ? host.getPort() : secure ? 443 : 80;
+        return new HttpRoute(new HttpHost(host.getSchemeName(), host.getHostName(), port), null, secure);
+    }
+
+    /**
+     * Records how long new connections take to open; reused connections never get here
+     */
+    private static final class TimedConnectionManager extends PoolingHttpClientConnectionManager {
+
+        private final Timer connectTime;
+
+        TimedConnectionManager(Timer connectTime) {
+            this.connectTime = connectTime;
+        }
+
+        @Override
+        public void connect(ConnectionEndpoint endpoint, TimeValue timeout, HttpContext context) throws IOException {
+            long started = System.nanoTime();
+            try {
+                super.connect(endpoint, timeout, context);
+            } finally {
+                connectTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
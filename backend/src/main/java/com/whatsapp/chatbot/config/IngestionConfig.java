@@ -0,0 +1,97 @@
+package com.whatsapp.chatbot.config;
+
+import com.whatsapp.chatbot.security.LoadSheddingFilter;
+import com.whatsapp.chatbot.service.WebhookAdmission;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chatbot.ingestion")
+public class IngestionConfig {
+
+    /**
+     * SYNC processes a webhook before answering; ASYNC queues it and answers immediately
+     */
+    private Mode mode = Mode.SYNC;
+    /**
+     * Total queued messages, split evenly across the lanes
+     */
+    private int queueCapacity = 10_000;
+    /**
+     * Number of single-threaded lanes; messages are assigned to a lane by sender
+     */
+    private int workers = 16;
+    private Inbox inbox = new Inbox();
+    private Admission admission = new Admission();
+
+    /**
+     * Load shedding on both webhook endpoints; runs after the observation filter so shed
+     * requests still show up in http.server.requests
+     */
+    @Bean
+    public FilterRegistrationBean<LoadSheddingFilter> loadSheddingFilter(WebhookAdmission admission) {
+        FilterRegistrationBean<LoadSheddingFilter> registration =
+                new FilterRegistrationBean<>(new LoadSheddingFilter(admission));
+        registration.addUrlPatterns("/webhook", "/webhook/", "/whatsapp/webhook", "/whatsapp/webhook/");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    public enum Mode {
+        SYNC,
+        ASYNC
+    }
+
+    /**
+     * Local write-ahead log of accepted messages, used in ASYNC mode
+     */
+    @Data
+    public static class Inbox {
+        private boolean enabled = true;
+        private String directory = "data/inbox";
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        private Fsync fsync = Fsync.INTERVAL;
+        private Duration fsyncInterval = Duration.ofMillis(200);
+    }
+
+    /**
+     * Adaptive admission control for webhook requests
+     */
+    @Data
+    public static class Admission {
+        private boolean enabled = true;
+        private int initialLimit = 50;
+        private int minLimit = 8;
+        private int maxLimit = 1000;
+        // Short-term latency may reach this multiple of the baseline before the limit shrinks
+        private double latencyTolerance = 2.0;
+        private double smoothing = 0.2;
+        // Lane queue wait that, sustained for queue-interval, means the queue is standing
+        private Duration queueTarget = Duration.ofSeconds(2);
+        private Duration queueInterval = Duration.ofSeconds(5);
+        private Duration retryAfter = Duration.ofSeconds(30);
+    }
+
+    public enum Fsync {
+        /**
+         * Never force; survives a process crash but not a power loss
+         */
+        NEVER,
+        /**
+         * Force in the background every fsync-interval
+         */
+        INTERVAL,
+        /**
+         * Force before acknowledging the webhook; concurrent webhooks share one fsync
+         */
+        ALWAYS
+    }
+}
@@ -0,0 +1,27 @@
+package com.whatsapp.chatbot.config;
+
+import com.whatsapp.chatbot.matching.MatchingStrategy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chatbot.matching")
+public class MatchingConfig {
+
+    private MatchingStrategy strategy = MatchingStrategy.EXACT;
+    private int maxEdits = 2;
+    private Cache cache = new Cache();
+
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        private long maxSize = 10_000;
+        private Duration ttl = Duration.ofMinutes(10);
+        // Longer messages are almost always unique and would only churn the cache
+        private int maxKeyLength = 128;
+    }
+}
@@ -0,0 +1,50 @@
+package com.whatsapp.chatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chatbot.media")
+public class MediaConfig {
+
+    /**
+     * Uploads and downloads are spooled here while in transit and deleted afterwards
+     */
+    private String directory = "data/media";
+    /**
+     * Largest file accepted in either direction; WhatsApp documents may be up to 100MB
+     */
+    private DataSize maxFileSize = DataSize.ofMegabytes(100);
+    /**
+     * Size of each pooled direct buffer; a transfer moves at most this much per read
+     */
+    private DataSize bufferSize = DataSize.ofKilobytes(64);
+    /**
+     * Pooled direct buffers, i.e. transfers running at once; off-heap use is capped at buffers x buffer-size
+     */
+    private int buffers = 32;
+    /**
+     * How long a transfer waits for a free buffer before failing
+     */
+    private Duration bufferWait = Duration.ofSeconds(5);
+    /**
+     * Upper bound on one upload or download to the Graph API, retries included
+     */
+    private Duration transferTimeout = Duration.ofMinutes(2);
+    private Cache cache = new Cache();
+
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        private long maxSize = 10_000;
+        /**
+         * Uploaded media ids stay valid for 30 days
+         */
+        private Duration ttl = Duration.ofDays(29);
+    }
+}
@@ -0,0 +1,48 @@
+package com.whatsapp.chatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chatbot.outbound")
+public class OutboundConfig {
+
+    /**
+     * When disabled replies are sent straight away, without rate limiting
+     */
+    private boolean enabled = true;
+    /**
+     * Messages per second one phone number id may send; Meta's default tier is 80
+     */
+    private double messagesPerSecond = 80;
+    private int burst = 80;
+    /**
+     * Floor for the rate after repeated throttling
+     */
+    private double minMessagesPerSecond = 1;
+    /**
+     * Fraction of messages-per-second regained each second without throttling
+     */
+    private double recoveryPerSecond = 0.05;
+    /**
+     * Per recipient: up to recipient-burst messages, then one per recipient-interval
+     */
+    private int recipientBurst = 45;
+    private Duration recipientInterval = Duration.ofSeconds(6);
+    /**
+     * Messages waiting for a token, across all recipients; further sends are refused
+     */
+    private int queueCapacity = 10_000;
+    /**
+     * How long a caller waits for its message to be sent before giving up on it
+     */
+    private Duration maxWait = Duration.ofSeconds(30);
+    /**
+     * Times a throttled message is put back in its queue before it fails
+     */
+    private int maxThrottleRetries = 3;
+}
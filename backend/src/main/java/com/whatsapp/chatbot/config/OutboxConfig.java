@@ -0,0 +1,48 @@
+package com.whatsapp.chatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chatbot.outbox")
+public class OutboxConfig {
+
+    /**
+     * Messages claimed per statement
+     */
+    private int batchSize = 100;
+    /**
+     * Claimed messages handed to the outbound scheduler and not yet answered; keep this below
+     * chatbot.outbound.queue-capacity
+     */
+    private int maxInFlight = 1000;
+    /**
+     * How often the table is checked when no local write has signalled new messages, e.g. for
+     * retries and for messages written by other instances
+     */
+    private Duration pollInterval = Duration.ofSeconds(1);
+    /**
+     * How long a claim is held before another dispatcher may take the message over; must outlast
+     * chatbot.outbound.max-wait and the Graph API retries
+     */
+    private Duration lease = Duration.ofMinutes(2);
+    private int maxAttempts = 5;
+    /**
+     * Delay before the second attempt, doubled for each further one up to max-backoff
+     */
+    private Duration initialBackoff = Duration.ofSeconds(5);
+    private Duration maxBackoff = Duration.ofMinutes(5);
+    /**
+     * Sent and failed messages are deleted after this long
+     */
+    private Duration retention = Duration.ofDays(1);
+    private Duration purgeInterval = Duration.ofMinutes(10);
+    /**
+     * On shutdown, how long to wait for messages in flight so they are not sent again after a restart
+     */
+    private Duration stopTimeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,52 @@
+package com.whatsapp.chatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "whatsapp.resilience")
+public class ResilienceConfig {
+
+    private Retry retry = new Retry();
+    private Breaker circuitBreaker = new Breaker();
+
+    /**
+     * Retries of 5xx, throttling and I/O failures, with full-jitter exponential backoff
+     */
+    @Data
+    public static class Retry {
+        /**
+         * Attempts per call including the first; 1 disables retries
+         */
+        private int maxAttempts = 3;
+        private Duration initialBackoff = Duration.ofMillis(200);
+        private Duration maxBackoff = Duration.ofSeconds(5);
+        private double multiplier = 2.0;
+    }
+
+    /**
+     * Fails Graph API calls fast while 5xx and I/O failures dominate
+     */
+    @Data
+    public static class Breaker {
+        private boolean enabled = true;
+        /**
+         * Calls the failure rate is computed over
+         */
+        private int windowSize = 20;
+        private int minimumCalls = 10;
+        private double failureRateThreshold = 0.5;
+        /**
+         * How long calls are refused before probing again
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+        /**
+         * Probe calls that must all succeed to close the circuit
+         */
+        private int halfOpenProbes = 3;
+    }
+}
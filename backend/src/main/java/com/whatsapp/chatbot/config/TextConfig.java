@@ -0,0 +1,21 @@
+package com.whatsapp.chatbot.config;
+
+import com.whatsapp.chatbot.text.Stemmer;
+import com.whatsapp.chatbot.text.TextNormalizer;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chatbot.text")
+public class TextConfig {
+
+    private Stemmer stemming = Stemmer.NONE;
+
+    @Bean
+    public TextNormalizer textNormalizer() {
+        return new TextNormalizer(stemming);
+    }
+}
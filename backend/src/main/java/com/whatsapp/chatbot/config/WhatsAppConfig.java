@@ -1,7 +1,10 @@
 package com.whatsapp.chatbot.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.whatsapp.chatbot.client.GraphApiResilience;
 import com.whatsapp.chatbot.client.WhatsAppClient;
 import lombok.Data;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,6 +19,10 @@ public class WhatsAppConfig {
     private String baseUrl = "https://graph.facebook.com";
     private String accessToken;
     private String verifyToken;
+    /**
+     * Meta app secret; webhook bodies are checked against X-Hub-Signature-256 when set
+     */
+    private String appSecret;
     private String phoneNumberId;
     private String businessAccountId;
     
@@ -40,12 +47,9 @@ public class WhatsAppConfig {
     }
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
-    }
-
-    @Bean
-    public WhatsAppClient whatsAppClient(RestTemplate restTemplate) {
-        return new WhatsAppClient(restTemplate, baseUrl, accessToken, version, phoneNumberId);
+    public WhatsAppClient whatsAppClient(RestTemplate restTemplate, CloseableHttpAsyncClient graphApiAsyncClient,
+                                         GraphApiResilience graphApiResilience, ObjectMapper objectMapper) {
+        return new WhatsAppClient(restTemplate, graphApiAsyncClient, graphApiResilience, objectMapper,
+                baseUrl, accessToken, version, phoneNumberId);
     }
 } 
\ No newline at end of file
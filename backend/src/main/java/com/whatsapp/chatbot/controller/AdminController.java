@@ -2,7 +2,9 @@ package com.whatsapp.chatbot.controller;
 
 import com.whatsapp.chatbot.entity.ChatMessage;
 import com.whatsapp.chatbot.entity.Intent;
+import com.whatsapp.chatbot.matching.IntentSnapshot;
 import com.whatsapp.chatbot.service.ChatbotService;
+import com.whatsapp.chatbot.service.IntentMatchingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -13,6 +15,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Slf4j
@@ -23,6 +26,7 @@ import java.util.UUID;
 public class AdminController {
 
     private final ChatbotService chatbotService;
+    private final IntentMatchingService intentMatchingService;
 
     @GetMapping("/intents")
     @Operation(summary = "List all active intents")
@@ -52,6 +56,32 @@ public class AdminController {
         return ResponseEntity.noContent().build();
     }
 
+    @GetMapping("/intents/snapshot")
+    @Operation(summary = "Get the version and build time of the live intent snapshot")
+    public ResponseEntity<Map<String, Object>> getIntentSnapshot() {
+        IntentSnapshot snapshot = intentMatchingService.getSnapshot();
+        return ResponseEntity.ok(Map.of(
+                "version", snapshot.getVersion(),
+                "builtAt", snapshot.getBuiltAt().toString(),
+                "intents", snapshot.size(),
+                "triggers", snapshot.getMatcher().size(),
+                "strategy", snapshot.getStrategy().name()
+        ));
+    }
+
+    @GetMapping("/intents/match")
+    @Operation(summary = "Rank the intents matching a message, best first")
+    public ResponseEntity<List<Map<String, Object>>> matchIntents(
+            @Parameter(description = "Message text to match") @RequestParam String message) {
+        List<Map<String, Object>> ranked = intentMatchingService.rank(message).ranked().stream()
+                .map(candidate -> Map.<String, Object>of(
+                        "intentId", candidate.intent().getId(),
+                        "name", candidate.intent().getName(),
+                        "score", candidate.score()))
+                .toList();
+        return ResponseEntity.ok(ranked);
+    }
+
     @GetMapping("/conversations/{userId}")
     @Operation(summary = "Get conversation history for a user")
     public ResponseEntity<List<ChatMessage>> getConversationHistory(
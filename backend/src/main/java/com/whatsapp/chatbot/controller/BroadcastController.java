@@ -0,0 +1,94 @@
+package com.whatsapp.chatbot.controller;
+
+import com.whatsapp.chatbot.dto.BroadcastProgress;
+import com.whatsapp.chatbot.dto.BroadcastRequest;
+import com.whatsapp.chatbot.entity.BroadcastJob;
+import com.whatsapp.chatbot.service.BroadcastService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/admin/broadcasts")
+@Tag(name = "Broadcasts", description = "Send a template message to many recipients")
+public class BroadcastController {
+
+    private final BroadcastService broadcastService;
+
+    @PostMapping
+    @Operation(summary = "Start a broadcast to a list of recipients")
+    public ResponseEntity<BroadcastProgress> createBroadcast(@Valid @RequestBody BroadcastRequest request)
+            throws IOException {
+        BroadcastJob job = broadcastService.create(request.getTemplateName(), request.getLanguageCode(),
+                request.getRecipients());
+        return ResponseEntity.accepted().body(broadcastService.progress(job.getId()).orElseThrow());
+    }
+
+    @PostMapping(value = "/csv", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    @Operation(summary = "Start a broadcast to a CSV of recipients streamed as the request body, "
+            + "phone number in the first column")
+    public ResponseEntity<BroadcastProgress> createBroadcastFromCsv(
+            @Parameter(description = "Approved template name") @RequestParam String templateName,
+            @RequestParam(defaultValue = "en_US") String languageCode,
+            HttpServletRequest request) throws IOException {
+        BroadcastJob job = broadcastService.create(templateName, languageCode,
+                new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+        return ResponseEntity.accepted().body(broadcastService.progress(job.getId()).orElseThrow());
+    }
+
+    @GetMapping
+    @Operation(summary = "List the 50 most recent broadcasts with their progress")
+    public ResponseEntity<List<BroadcastProgress>> listBroadcasts() {
+        return ResponseEntity.ok(broadcastService.recent());
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get progress, throughput and failure count of a broadcast")
+    public ResponseEntity<BroadcastProgress> getBroadcast(
+            @Parameter(description = "Broadcast ID") @PathVariable UUID id) {
+        return ResponseEntity.of(broadcastService.progress(id));
+    }
+
+    @GetMapping(value = "/{id}/failures", produces = "text/csv")
+    @Operation(summary = "Download the recipients that failed so far, with the reason")
+    public ResponseEntity<Resource> getFailures(
+            @Parameter(description = "Broadcast ID") @PathVariable UUID id) {
+        return ResponseEntity.of(broadcastService.failures(id).map(FileSystemResource::new));
+    }
+
+    @PostMapping("/{id}/cancel")
+    @Operation(summary = "Stop sending a broadcast")
+    public ResponseEntity<BroadcastProgress> cancelBroadcast(
+            @Parameter(description = "Broadcast ID") @PathVariable UUID id) {
+        return ResponseEntity.of(broadcastService.cancel(id));
+    }
+
+    @PostMapping("/{id}/resume")
+    @Operation(summary = "Continue a cancelled or failed broadcast from its last checkpoint")
+    public ResponseEntity<BroadcastProgress> resumeBroadcast(
+            @Parameter(description = "Broadcast ID") @PathVariable UUID id) {
+        try {
+            return ResponseEntity.of(broadcastService.resume(id));
+        } catch (IllegalStateException e) {
+            log.warn("Cannot resume broadcast {}: {}", id, e.getMessage());
+            return ResponseEntity.status(409).build();
+        }
+    }
+}
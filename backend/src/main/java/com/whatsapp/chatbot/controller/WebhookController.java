@@ -2,15 +2,22 @@ package com.whatsapp.chatbot.controller;
 
 import com.whatsapp.chatbot.dto.WhatsAppEvent;
 import com.whatsapp.chatbot.service.ChatbotService;
+import com.whatsapp.chatbot.service.WebhookIngestionService;
+import com.whatsapp.chatbot.webhook.InboundWebhook;
+import com.whatsapp.chatbot.webhook.WebhookBodyReader;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import jakarta.validation.Valid;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.Map;
 
 @Slf4j
@@ -21,6 +28,8 @@ import java.util.Map;
 public class WebhookController {
 
     private final ChatbotService chatbotService;
+    private final WebhookIngestionService ingestionService;
+    private final WebhookBodyReader webhookBodyReader;
 
     @Value("${whatsapp.api.verify-token}")
     private String verifyToken;
@@ -42,12 +51,38 @@ public class WebhookController {
     }
 
     @PostMapping
-    @Operation(summary = "Handle webhook events", description = "Receives and processes WhatsApp messages")
-    public ResponseEntity<Map<String, String>> handleWebhook(@Valid @RequestBody WhatsAppEvent event) {
-        log.info("Received webhook event: {}", event);
+    @Operation(summary = "Handle webhook events", description = "Receives and processes WhatsApp messages",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    content = @Content(schema = @Schema(implementation = WhatsAppEvent.class))))
+    public ResponseEntity<Map<String, String>> handleWebhook(HttpServletRequest request) {
+        // One pass over the body: signed while read, parsed from the same buffer only if authentic
+        InboundWebhook webhook;
+        try {
+            webhook = webhookBodyReader.readWebhook(request);
+        } catch (WebhookBodyReader.SignatureMismatchException e) {
+            log.warn("Rejecting webhook with a missing or invalid signature from {}", request.getRemoteAddr());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("status", "error", "message", "Invalid signature"));
+        } catch (WebhookBodyReader.BodyTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(Map.of("status", "error", "message", e.getMessage()));
+        } catch (IOException e) {
+            log.warn("Rejecting malformed webhook body: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(Map.of("status", "error", "message", "Invalid webhook payload"));
+        }
+        log.info("Received webhook: {}", webhook);
+
+        if (ingestionService.isAsync()) {
+            if (ingestionService.submit(webhook)) {
+                return ResponseEntity.ok(Map.of("status", "accepted"));
+            }
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("status", "error", "message", "Webhook queue is full"));
+        }
         
         try {
-            chatbotService.handleWebhookEvent(event);
+            chatbotService.handleWebhook(webhook);
             return ResponseEntity.ok(Map.of("status", "success"));
         } catch (Exception e) {
             log.error("Error processing webhook event: {}", e.getMessage(), e);
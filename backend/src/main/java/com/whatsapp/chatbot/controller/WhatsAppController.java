@@ -1,13 +1,25 @@
 package com.whatsapp.chatbot.controller;
 
+import com.whatsapp.chatbot.dto.MediaUpload;
 import com.whatsapp.chatbot.dto.WhatsAppMessageResponse;
 import com.whatsapp.chatbot.dto.WhatsAppWebhookRequest;
+import com.whatsapp.chatbot.service.MediaService;
 import com.whatsapp.chatbot.service.WhatsAppService;
+import com.whatsapp.chatbot.webhook.InboundWebhook;
+import com.whatsapp.chatbot.webhook.WebhookBodyReader;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 
 @Slf4j
@@ -17,6 +29,8 @@ import java.util.Map;
 public class WhatsAppController {
 
     private final WhatsAppService whatsAppService;
+    private final WebhookBodyReader webhookBodyReader;
+    private final MediaService mediaService;
 
     /**
      * Webhook verification endpoint
@@ -45,11 +59,25 @@ public class WhatsAppController {
      * Webhook endpoint for receiving messages
      */
     @PostMapping("/webhook")
-    public ResponseEntity<String> receiveWebhook(@RequestBody WhatsAppWebhookRequest webhookRequest) {
-        log.info("Received webhook: {}", webhookRequest);
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(
+            content = @Content(schema = @Schema(implementation = WhatsAppWebhookRequest.class)))
+    public ResponseEntity<String> receiveWebhook(HttpServletRequest request) {
+        InboundWebhook webhook;
+        try {
+            webhook = webhookBodyReader.readWebhook(request);
+        } catch (WebhookBodyReader.SignatureMismatchException e) {
+            log.warn("Rejecting webhook with a missing or invalid signature from {}", request.getRemoteAddr());
+            return ResponseEntity.status(403).body("Forbidden");
+        } catch (WebhookBodyReader.BodyTooLargeException e) {
+            return ResponseEntity.status(413).body("Payload too large");
+        } catch (IOException e) {
+            log.warn("Rejecting malformed webhook body: {}", e.getMessage());
+            return ResponseEntity.badRequest().body("Invalid payload");
+        }
+        log.info("Received webhook: {}", webhook);
         
         try {
-            whatsAppService.processWebhook(webhookRequest);
+            whatsAppService.processWebhook(webhook);
             return ResponseEntity.ok("OK");
         } catch (Exception e) {
             log.error("Error processing webhook", e);
@@ -116,6 +144,74 @@ public class WhatsAppController {
         }
     }
 
+    /**
+     * Upload media to send with /send/media, streamed as the request body with the media's mime type as
+     * its Content-Type; spooled to disk once on the way. The same content uploaded again reuses its media id.
+     */
+    @PostMapping("/media")
+    public ResponseEntity<MediaUpload> uploadMedia(
+            @RequestParam(defaultValue = "file") String fileName,
+            HttpServletRequest request) {
+        MediaType contentType;
+        try {
+            contentType = MediaType.parseMediaType(request.getContentType());
+        } catch (InvalidMediaTypeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (contentType.isWildcardType() || contentType.isWildcardSubtype()) {
+            return ResponseEntity.badRequest().build();
+        }
+        // Form bodies are parsed by the container before they get here; media must be sent as is
+        if (contentType.isCompatibleWith(MediaType.MULTIPART_FORM_DATA)
+                || contentType.isCompatibleWith(MediaType.APPLICATION_FORM_URLENCODED)) {
+            return ResponseEntity.status(415).build();
+        }
+        String mimeType = contentType.getType() + "/" + contentType.getSubtype();
+
+        log.info("Uploading media {} ({}, {} bytes)", fileName, mimeType, request.getContentLengthLong());
+
+        try (InputStream in = request.getInputStream()) {
+            return ResponseEntity.ok(mediaService.upload(in, mimeType, fileName));
+        } catch (MediaService.MediaTooLargeException e) {
+            return ResponseEntity.status(413).build();
+        } catch (MediaService.TransfersBusyException e) {
+            log.warn("Rejecting media upload: {}", e.getMessage());
+            return ResponseEntity.status(503).build();
+        } catch (Exception e) {
+            log.error("Failed to upload media", e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    /**
+     * Download media by id, e.g. one received in a webhook, streamed back without buffering it in memory
+     */
+    @GetMapping("/media/{mediaId}")
+    public ResponseEntity<StreamingResponseBody> downloadMedia(@PathVariable String mediaId) {
+        log.info("Downloading media {}", mediaId);
+
+        MediaService.MediaFile media;
+        try {
+            media = mediaService.download(mediaId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (MediaService.MediaTooLargeException e) {
+            return ResponseEntity.status(413).build();
+        } catch (MediaService.TransfersBusyException e) {
+            log.warn("Rejecting media download: {}", e.getMessage());
+            return ResponseEntity.status(503).build();
+        } catch (Exception e) {
+            log.error("Failed to download media {}", mediaId, e);
+            return ResponseEntity.status(500).build();
+        }
+        MediaType contentType = media.mimeType() == null
+                ? MediaType.APPLICATION_OCTET_STREAM : MediaType.parseMediaType(media.mimeType());
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .contentLength(media.size())
+                .body(out -> mediaService.transferTo(media, out));
+    }
+
     /**
      * Get phone number information
      */
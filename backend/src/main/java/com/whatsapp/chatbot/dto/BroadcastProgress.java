@@ -0,0 +1,59 @@
+package com.whatsapp.chatbot.dto;
+
+import com.whatsapp.chatbot.entity.BroadcastJob;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+public class BroadcastProgress {
+    private UUID id;
+    private String templateName;
+    private String languageCode;
+    private BroadcastJob.Status status;
+    private long total;
+    private long invalid;
+    private long sent;
+    private long failed;
+    private long remaining;
+    private double percentComplete;
+    /**
+     * Recipients handled per second since the job first started
+     */
+    private double messagesPerSecond;
+    private String lastError;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+
+    /**
+     * @param sent   live count, which may be ahead of the job's last checkpoint
+     * @param failed live count, likewise
+     */
+    public static BroadcastProgress of(BroadcastJob job, long sent, long failed) {
+        long done = sent + failed;
+        double seconds = job.getStartedAt() == null ? 0 : Duration.between(job.getStartedAt(),
+                job.getFinishedAt() == null ? Instant.now() : job.getFinishedAt()).toMillis() / 1000.0;
+        return BroadcastProgress.builder()
+                .id(job.getId())
+                .templateName(job.getTemplateName())
+                .languageCode(job.getLanguageCode())
+                .status(job.getStatus())
+                .total(job.getTotal())
+                .invalid(job.getInvalid())
+                .sent(sent)
+                .failed(failed)
+                .remaining(Math.max(0, job.getTotal() - done))
+                .percentComplete(job.getTotal() == 0 ? 100.0 : 100.0 * done / job.getTotal())
+                .messagesPerSecond(seconds > 0 ? done / seconds : 0)
+                .lastError(job.getLastError())
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+}
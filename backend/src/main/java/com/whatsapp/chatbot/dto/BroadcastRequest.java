@@ -0,0 +1,25 @@
+package com.whatsapp.chatbot.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BroadcastRequest {
+    @NotBlank
+    private String templateName;
+
+    @Builder.Default
+    private String languageCode = "en_US";
+
+    @NotEmpty
+    private List<String> recipients;
+}
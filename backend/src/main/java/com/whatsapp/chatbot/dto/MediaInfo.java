@@ -0,0 +1,23 @@
+package com.whatsapp.chatbot.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+/**
+ * Graph API answer to {@code GET /{media-id}}; the URL needs the access token and expires after five minutes
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MediaInfo {
+    private String id;
+    private String url;
+
+    @JsonProperty("mime_type")
+    private String mimeType;
+
+    private String sha256;
+
+    @JsonProperty("file_size")
+    private long fileSize;
+}
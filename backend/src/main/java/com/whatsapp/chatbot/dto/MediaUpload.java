@@ -0,0 +1,24 @@
+package com.whatsapp.chatbot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaUpload {
+    /**
+     * Send with /whatsapp/send/media; valid for 30 days
+     */
+    private String mediaId;
+    private String mimeType;
+    private long size;
+    private String sha256;
+    /**
+     * True when the same content had been uploaded before and its media id was reused
+     */
+    private boolean cached;
+}
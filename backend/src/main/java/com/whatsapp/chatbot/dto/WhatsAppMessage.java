@@ -1,6 +1,7 @@
 package com.whatsapp.chatbot.dto;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Builder;
 import lombok.Data;
 
@@ -8,6 +9,7 @@ import lombok.Data;
 @Builder
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class WhatsAppMessage {
+    @JsonProperty("messaging_product")
     private String messagingProduct;
     private String to;
     private String type;
@@ -1,5 +1,6 @@
 package com.whatsapp.chatbot.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,6 +13,7 @@ import java.util.Map;
 @NoArgsConstructor
 @AllArgsConstructor
 public class WhatsAppMessageRequest {
+    @JsonProperty("messaging_product")
     private String messagingProduct;
     private String to;
     private String type;
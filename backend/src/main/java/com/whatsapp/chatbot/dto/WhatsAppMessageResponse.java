@@ -1,5 +1,6 @@
 package com.whatsapp.chatbot.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,6 +13,7 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class WhatsAppMessageResponse {
+    @JsonProperty("messaging_product")
     private String messagingProduct;
     private List<Contact> contacts;
     private List<Message> messages;
@@ -22,6 +24,7 @@ public class WhatsAppMessageResponse {
     @AllArgsConstructor
     public static class Contact {
         private String input;
+        @JsonProperty("wa_id")
         private String waId;
     }
 
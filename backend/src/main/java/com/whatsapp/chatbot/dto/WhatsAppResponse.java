@@ -14,6 +14,7 @@ public class WhatsAppResponse {
     @Data
     public static class Contact {
         private String input;
+        @JsonProperty("wa_id")
         private String waId;
     }
 
@@ -1,5 +1,6 @@
 package com.whatsapp.chatbot.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -38,20 +39,34 @@ public class WhatsAppWebhookRequest {
     @NoArgsConstructor
     @AllArgsConstructor
     public static class Value {
+        @JsonProperty("messaging_product")
         private String messagingProduct;
-        private String metadata;
+        private Metadata metadata;
         private List<Contact> contacts;
         private List<Message> messages;
         private List<Status> statuses;
         private String object;
     }
 
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Metadata {
+        @JsonProperty("display_phone_number")
+        private String displayPhoneNumber;
+
+        @JsonProperty("phone_number_id")
+        private String phoneNumberId;
+    }
+
     @Data
     @Builder
     @NoArgsConstructor
     @AllArgsConstructor
     public static class Contact {
         private Profile profile;
+        @JsonProperty("wa_id")
         private String waId;
     }
 
@@ -91,6 +106,7 @@ public class WhatsAppWebhookRequest {
         private String id;
         private String status;
         private String timestamp;
+        @JsonProperty("recipient_id")
         private String recipientId;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.whatsapp.chatbot.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One template message sent to a spooled list of recipients. Counters and the checkpoint only cover
+ * recipients before {@link #checkpointIndex}, so a job interrupted mid-way resumes from there.
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "broadcast_jobs")
+public class BroadcastJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private String templateName;
+
+    @Column(nullable = false)
+    private String languageCode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    /**
+     * Recipients spooled for sending
+     */
+    private long total;
+
+    /**
+     * Input lines skipped while spooling because they were not a phone number
+     */
+    private long invalid;
+
+    private long sent;
+
+    private long failed;
+
+    /**
+     * Recipients before this index are done; sending resumes here
+     */
+    private long checkpointIndex;
+
+    /**
+     * Byte offsets into the recipient and failure files that match {@link #checkpointIndex}
+     */
+    private long checkpointOffset;
+
+    private long failuresOffset;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    private Instant startedAt;
+
+    private Instant finishedAt;
+
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    @Version
+    private Long version;
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+}
@@ -33,6 +33,12 @@ public class ChatMessage {
     @Column(nullable = false, columnDefinition = "TEXT")
     private String message;
 
+    /**
+     * Output of the shared text normalizer; used for intent matching and message search
+     */
+    @Column(name = "normalized_message", columnDefinition = "TEXT")
+    private String normalizedMessage;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private MessageDirection direction;
@@ -57,11 +63,12 @@ public class ChatMessage {
         OUTBOUND
     }
 
-    public static ChatMessage inbound(String conversationId, String userId, String message) {
+    public static ChatMessage inbound(String conversationId, String userId, String message, String normalizedMessage) {
         ChatMessage chatMessage = new ChatMessage();
         chatMessage.setConversationId(conversationId);
         chatMessage.setUserId(userId);
         chatMessage.setMessage(message);
+        chatMessage.setNormalizedMessage(normalizedMessage);
         chatMessage.setDirection(MessageDirection.INBOUND);
         return chatMessage;
     }
@@ -34,6 +34,13 @@ public class Intent {
     @Column(nullable = false)
     private boolean active;
 
+    /**
+     * Higher priority wins when several intents match the same message
+     */
+    @Builder.Default
+    @Column(columnDefinition = "integer not null default 0")
+    private int priority = 0;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private Instant createdAt;
@@ -0,0 +1,96 @@
+package com.whatsapp.chatbot.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A reply waiting to be sent, inserted once the chat messages it answers are stored. The chat log is a
+ * Firestore batch and the outbox a separate Postgres transaction, so a crash between the two replays
+ * the webhook from the inbox: that may store a chat message twice but never loses a reply. Rows are
+ * claimed by {@code OutboxDispatcher} and kept as SENT or FAILED until the retention period has passed.
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "outbox_messages", indexes = {
+        @Index(name = "idx_outbox_messages_due", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_outbox_messages_recipient", columnList = "recipient, sequence_number")
+})
+public class OutboxMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    /**
+     * Insertion order, assigned by the database; a recipient's replies are sent one at a time in this order
+     */
+    @Column(columnDefinition = "BIGSERIAL", insertable = false, updatable = false)
+    private Long sequenceNumber;
+
+    /**
+     * Text of the reply
+     */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String body;
+
+    /**
+     * Intent the reply answers with, so it is sent as serialized with the intents; null for free text
+     * such as the fallback reply
+     */
+    private UUID intentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private Status status = Status.PENDING;
+
+    /**
+     * Claims so far, including one that is still sending
+     */
+    private int attempts;
+
+    @Column(nullable = false)
+    private Instant nextAttemptAt;
+
+    /**
+     * While SENDING, other dispatchers leave the row alone until this passes
+     */
+    private Instant leaseUntil;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    private Instant sentAt;
+
+    public enum Status {
+        PENDING,
+        SENDING,
+        SENT,
+        FAILED
+    }
+
+    public static OutboxMessage reply(String recipient, String body, UUID intentId) {
+        return OutboxMessage.builder()
+                .recipient(recipient)
+                .body(body)
+                .intentId(intentId)
+                .nextAttemptAt(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,9 @@
+package com.whatsapp.chatbot.event;
+
+import java.util.UUID;
+
+/**
+ * Published when an intent is created, updated or deleted
+ */
+public record IntentsChangedEvent(UUID intentId) {
+}
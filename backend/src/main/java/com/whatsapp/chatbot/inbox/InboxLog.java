@@ -0,0 +1,382 @@
+package com.whatsapp.chatbot.inbox;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only write-ahead log of accepted work, stored as fixed-size memory-mapped segments.
+ * <p>
+ * Each record is {@code [int length][int crc32c][long seq][payload]}; a zero length marks the end of
+ * the written part of a segment. Every segment has a companion ack file with one byte per record, set
+ * when the record has been processed. A segment whose records are all acked is deleted once it is
+ * full; on {@link #open()} the unacked records of every segment are returned for replay.
+ * <p>
+ * Mapped writes survive a process crash without any fsync. {@link #awaitDurable(long)} additionally
+ * forces them to disk for power-loss safety; concurrent callers share one force (group commit).
+ */
+@Slf4j
+public final class InboxLog implements Closeable {
+
+    /**
+     * A record read back for replay
+     */
+    public record Entry(long seq, byte[] payload) {
+    }
+
+    private static final int HEADER = 16;
+    private static final String PREFIX = "inbox-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String ACK_SUFFIX = ".ack";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean forceOnSeal;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private volatile Segment active;
+    private long nextSeq;
+    private volatile long lastWritten = -1;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private boolean syncing;
+    private long durableSeq = -1;
+
+    /**
+     * @param forceOnSeal force a full segment to disk before writing to the next one
+     */
+    public InboxLog(Path directory, int segmentSize, boolean forceOnSeal) {
+        if (segmentSize < 4096) {
+            throw new IllegalArgumentException("segmentSize must be at least 4096 bytes");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.forceOnSeal = forceOnSeal;
+    }
+
+    /**
+     * Recover existing segments, delete fully processed ones and start a fresh segment.
+     * Returns the unprocessed records in append order.
+     */
+    public List<Entry> open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> logs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + LOG_SUFFIX)) {
+            stream.forEach(logs::add);
+        }
+        // Zero-padded base sequence numbers make name order append order
+        logs.sort(null);
+
+        List<Entry> pending = new ArrayList<>();
+        for (Path logPath : logs) {
+            Segment segment = Segment.open(logPath, ackPath(logPath), segmentSize, baseSeqOf(logPath));
+            int before = pending.size();
+            segment.recover(pending);
+            nextSeq = Math.max(nextSeq, segment.baseSeq + segment.count);
+            segment.sealed = true;
+            if (pending.size() == before) {
+                segment.delete();
+            } else {
+                segments.put(segment.baseSeq, segment);
+                log.info("Inbox segment {} has {} unprocessed records", logPath.getFileName(), pending.size() - before);
+            }
+        }
+        lastWritten = nextSeq - 1;
+        durableSeq = lastWritten;
+        active = createSegment(nextSeq);
+        return pending;
+    }
+
+    /**
+     * Append a record and return its sequence number; the record is in the page cache on return
+     */
+    public long append(byte[] payload) throws IOException {
+        if (HEADER + payload.length > segmentSize) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes exceeds the segment size");
+        }
+        appendLock.lock();
+        try {
+            if (!active.hasRoom(payload.length)) {
+                rotate();
+            }
+            long seq = nextSeq++;
+            active.write(seq, payload);
+            lastWritten = seq;
+            return seq;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Block until every record up to {@code seq} is forced to disk. One caller forces on behalf
+     * of everyone waiting, so concurrent appends are committed in a single fsync.
+     */
+    public void awaitDurable(long seq) throws IOException {
+        syncLock.lock();
+        try {
+            while (durableSeq < seq) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                long target = lastWritten;
+                Segment segment = active;
+                syncLock.unlock();
+                try {
+                    // Records before the active segment were forced when it was sealed
+                    segment.force();
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    durableSeq = Math.max(durableSeq, target);
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Force everything appended so far
+     */
+    public void flush() throws IOException {
+        awaitDurable(lastWritten);
+    }
+
+    /**
+     * Mark a record processed; its segment is deleted once full and entirely processed
+     */
+    public void complete(long seq) {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(seq);
+        if (entry == null) {
+            return;
+        }
+        Segment segment = entry.getValue();
+        if (segment.ack(seq) && segment.isDone()) {
+            retire(segment);
+        }
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Records appended or recovered but not yet completed
+     */
+    public long pendingCount() {
+        long pending = 0;
+        for (Segment segment : segments.values()) {
+            pending += segment.count - segment.completed.get();
+        }
+        return pending;
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            if (active != null) {
+                active.force();
+            }
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void rotate() throws IOException {
+        Segment full = active;
+        if (forceOnSeal) {
+            full.force();
+        }
+        active = createSegment(nextSeq);
+        full.sealed = true;
+        if (full.isDone()) {
+            retire(full);
+        }
+    }
+
+    private Segment createSegment(long baseSeq) throws IOException {
+        Path logPath = directory.resolve(String.format("%s%020d%s", PREFIX, baseSeq, LOG_SUFFIX));
+        Segment segment = Segment.open(logPath, ackPath(logPath), segmentSize, baseSeq);
+        segments.put(baseSeq, segment);
+        return segment;
+    }
+
+    private void retire(Segment segment) {
+        if (segments.remove(segment.baseSeq, segment)) {
+            segment.delete();
+        }
+    }
+
+    private static Path ackPath(Path logPath) {
+        String name = logPath.getFileName().toString();
+        return logPath.resolveSibling(name.substring(0, name.length() - LOG_SUFFIX.length()) + ACK_SUFFIX);
+    }
+
+    private static long baseSeqOf(Path logPath) {
+        String name = logPath.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - LOG_SUFFIX.length()));
+    }
+
+    private static final class Segment {
+        private final Path logPath;
+        private final Path ackPath;
+        private final long baseSeq;
+        private final FileChannel logChannel;
+        private final FileChannel ackChannel;
+        private final MappedByteBuffer data;
+        // One byte per record: records never share a byte, so concurrent acks need no lock
+        private final MappedByteBuffer acks;
+        private final CRC32C crc = new CRC32C();
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicBoolean deleted = new AtomicBoolean();
+
+        // Written under the append lock; volatile so a syncing thread sees the bytes they cover
+        private volatile int writePosition;
+        private volatile int count;
+        private final ReentrantLock forceLock = new ReentrantLock();
+        private int forcedPosition;
+        private volatile boolean sealed;
+
+        private Segment(Path logPath, Path ackPath, long baseSeq, FileChannel logChannel, FileChannel ackChannel,
+                        MappedByteBuffer data, MappedByteBuffer acks) {
+            this.logPath = logPath;
+            this.ackPath = ackPath;
+            this.baseSeq = baseSeq;
+            this.logChannel = logChannel;
+            this.ackChannel = ackChannel;
+            this.data = data;
+            this.acks = acks;
+        }
+
+        static Segment open(Path logPath, Path ackPath, int size, long baseSeq) throws IOException {
+            FileChannel logChannel = FileChannel.open(logPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileChannel ackChannel = FileChannel.open(ackPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer data = logChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            MappedByteBuffer acks = ackChannel.map(FileChannel.MapMode.READ_WRITE, 0, size / HEADER);
+            return new Segment(logPath, ackPath, baseSeq, logChannel, ackChannel, data, acks);
+        }
+
+        boolean hasRoom(int payloadLength) {
+            // Keep room for the zero length that terminates the segment
+            return writePosition + HEADER + payloadLength + Integer.BYTES <= data.capacity();
+        }
+
+        void write(long seq, byte[] payload) {
+            int position = writePosition;
+            data.putLong(position + 8, seq);
+            data.put(position + HEADER, payload);
+            crc.reset();
+            crc.update(data.slice(position + 8, 8 + payload.length));
+            data.putInt(position + 4, (int) crc.getValue());
+            // Length last: a reader never sees a length without the bytes it covers
+            data.putInt(position, payload.length);
+            writePosition = position + HEADER + payload.length;
+            count++;
+        }
+
+        /**
+         * Read back records, stopping at the end marker or the first torn or corrupt record
+         */
+        void recover(List<Entry> pending) {
+            int position = 0;
+            int index = 0;
+            while (position + HEADER <= data.capacity()) {
+                int length = data.getInt(position);
+                if (length <= 0 || position + HEADER + length > data.capacity()) {
+                    break;
+                }
+                long seq = data.getLong(position + 8);
+                crc.reset();
+                crc.update(data.slice(position + 8, 8 + length));
+                if ((int) crc.getValue() != data.getInt(position + 4) || seq != baseSeq + index) {
+                    log.warn("Inbox segment {} is corrupt at offset {}; ignoring the rest", logPath.getFileName(), position);
+                    break;
+                }
+                if (acks.get(index) == 0) {
+                    byte[] payload = new byte[length];
+                    data.get(position + HEADER, payload);
+                    pending.add(new Entry(seq, payload));
+                } else {
+                    completed.incrementAndGet();
+                }
+                position += HEADER + length;
+                index++;
+            }
+            writePosition = position;
+            count = index;
+        }
+
+        boolean ack(long seq) {
+            int index = (int) (seq - baseSeq);
+            if (index < 0 || index >= count || acks.get(index) != 0) {
+                return false;
+            }
+            acks.put(index, (byte) 1);
+            completed.incrementAndGet();
+            return true;
+        }
+
+        boolean isDone() {
+            return sealed && completed.get() >= count;
+        }
+
+        void force() {
+            forceLock.lock();
+            try {
+                int end = writePosition;
+                if (end > forcedPosition) {
+                    data.force(forcedPosition, end - forcedPosition);
+                    forcedPosition = end;
+                }
+            } finally {
+                forceLock.unlock();
+            }
+        }
+
+        void close() throws IOException {
+            logChannel.close();
+            ackChannel.close();
+        }
+
+        void delete() {
+            if (!deleted.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                close();
+                Files.deleteIfExists(logPath);
+                Files.deleteIfExists(ackPath);
+            } catch (IOException e) {
+                log.warn("Could not delete inbox segment {}: {}", logPath.getFileName(), e.getMessage());
+            }
+        }
+    }
+}
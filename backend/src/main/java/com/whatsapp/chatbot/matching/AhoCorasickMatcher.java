@@ -0,0 +1,164 @@
+package com.whatsapp.chatbot.matching;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable Aho-Corasick automaton over a fixed set of patterns.
+ * Finds every occurrence of every pattern in a text in a single pass.
+ */
+public final class AhoCorasickMatcher {
+
+    /**
+     * Callback for a pattern occurrence; {@code end} is exclusive
+     */
+    @FunctionalInterface
+    public interface MatchListener {
+        void onMatch(int patternId, int start, int end);
+    }
+
+    private static final int[] NO_OUTPUT = new int[0];
+
+    // Goto function: per state, sorted edge labels and their target states
+    private final char[][] labels;
+    private final int[][] targets;
+    private final int[] fail;
+    // Pattern ids ending at each state, including those reached via fail links
+    private final int[][] outputs;
+    private final int[] patternLengths;
+
+    private AhoCorasickMatcher(char[][] labels, int[][] targets, int[] fail, int[][] outputs, int[] patternLengths) {
+        this.labels = labels;
+        this.targets = targets;
+        this.fail = fail;
+        this.outputs = outputs;
+        this.patternLengths = patternLengths;
+    }
+
+    /**
+     * Build an automaton; the pattern id is its index in the list. Empty patterns never match.
+     */
+    public static AhoCorasickMatcher build(List<String> patterns) {
+        List<TreeMap<Character, Integer>> edges = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        edges.add(new TreeMap<>());
+        ends.add(new ArrayList<>());
+
+        int[] patternLengths = new int[patterns.size()];
+        for (int id = 0; id < patterns.size(); id++) {
+            String pattern = patterns.get(id);
+            patternLengths[id] = pattern.length();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                Integer next = edges.get(state).get(c);
+                if (next == null) {
+                    next = edges.size();
+                    edges.add(new TreeMap<>());
+                    ends.add(new ArrayList<>());
+                    edges.get(state).put(c, next);
+                }
+                state = next;
+            }
+            ends.get(state).add(id);
+        }
+
+        int stateCount = edges.size();
+        char[][] labels = new char[stateCount][];
+        int[][] targets = new int[stateCount][];
+        for (int s = 0; s < stateCount; s++) {
+            TreeMap<Character, Integer> out = edges.get(s);
+            labels[s] = new char[out.size()];
+            targets[s] = new int[out.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> e : out.entrySet()) {
+                labels[s][i] = e.getKey();
+                targets[s][i] = e.getValue();
+                i++;
+            }
+        }
+
+        // Breadth-first construction of fail links and merged outputs
+        int[] fail = new int[stateCount];
+        int[][] outputs = new int[stateCount][];
+        outputs[0] = NO_OUTPUT;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            fail[child] = 0;
+            outputs[child] = toArray(ends.get(child), NO_OUTPUT);
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < labels[state].length; i++) {
+                char c = labels[state][i];
+                int child = targets[state][i];
+                int f = fail[state];
+                int next;
+                while ((next = step(labels, targets, f, c)) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = next < 0 ? 0 : next;
+                outputs[child] = toArray(ends.get(child), outputs[fail[child]]);
+                queue.add(child);
+            }
+        }
+
+        return new AhoCorasickMatcher(labels, targets, fail, outputs, patternLengths);
+    }
+
+    /**
+     * Report every pattern occurrence in {@code text} to the listener, in order of end position
+     */
+    public void match(CharSequence text, MatchListener listener) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = step(labels, targets, state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = next < 0 ? 0 : next;
+            int[] hits = outputs[state];
+            for (int id : hits) {
+                listener.onMatch(id, i + 1 - patternLengths[id], i + 1);
+            }
+        }
+    }
+
+    public int patternCount() {
+        return patternLengths.length;
+    }
+
+    public int patternLength(int patternId) {
+        return patternLengths[patternId];
+    }
+
+    public int stateCount() {
+        return fail.length;
+    }
+
+    private static int step(char[][] labels, int[][] targets, int state, char c) {
+        int idx = Arrays.binarySearch(labels[state], c);
+        return idx < 0 ? -1 : targets[state][idx];
+    }
+
+    private static int[] toArray(List<Integer> own, int[] inherited) {
+        if (own.isEmpty()) {
+            return inherited;
+        }
+        int[] merged = new int[own.size() + inherited.length];
+        for (int i = 0; i < own.size(); i++) {
+            merged[i] = own.get(i);
+        }
+        System.arraycopy(inherited, 0, merged, own.size(), inherited.length);
+        return merged;
+    }
+}
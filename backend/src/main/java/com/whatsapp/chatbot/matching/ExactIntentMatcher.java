@@ -0,0 +1,64 @@
+package com.whatsapp.chatbot.matching;
+
+import com.whatsapp.chatbot.entity.Intent;
+import com.whatsapp.chatbot.text.TextNormalizer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick matcher over the normalized triggers of the active intents.
+ * A trigger matches when it occurs in the message on word boundaries.
+ */
+public final class ExactIntentMatcher implements IntentMatcher {
+
+    private final AhoCorasickMatcher automaton;
+    private final IntentScorer scorer;
+    private final int size;
+
+    private ExactIntentMatcher(AhoCorasickMatcher automaton, IntentScorer scorer, int size) {
+        this.automaton = automaton;
+        this.scorer = scorer;
+        this.size = size;
+    }
+
+    public static ExactIntentMatcher compile(List<Intent> intents, TextNormalizer normalizer) {
+        TriggerTable table = TriggerTable.of(intents, normalizer);
+        return compile(table, IntentScorer.of(table));
+    }
+
+    static ExactIntentMatcher compile(TriggerTable table, IntentScorer scorer) {
+        return new ExactIntentMatcher(AhoCorasickMatcher.build(Arrays.asList(table.triggers)), scorer, table.size());
+    }
+
+    @Override
+    public IntentMatchResult rank(String normalizedMessage) {
+        if (normalizedMessage == null || size == 0) {
+            return IntentMatchResult.NONE;
+        }
+        IntentScorer.Ranking ranking = scorer.newRanking(normalizedMessage.length());
+        collect(normalizedMessage, ranking);
+        return ranking.toResult();
+    }
+
+    /**
+     * Offer every whole-word trigger occurrence in already normalized text to the ranking
+     */
+    void collect(String text, IntentScorer.Ranking ranking) {
+        automaton.match(text, (patternId, start, end) -> {
+            if (isWordBoundary(text, start, end)) {
+                ranking.offer(patternId, 0);
+            }
+        });
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    static boolean isWordBoundary(CharSequence text, int start, int end) {
+        return (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1)))
+                && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)));
+    }
+}
@@ -0,0 +1,61 @@
+package com.whatsapp.chatbot.matching;
+
+import com.whatsapp.chatbot.entity.Intent;
+import com.whatsapp.chatbot.text.TextNormalizer;
+
+import java.util.List;
+
+/**
+ * Typo-tolerant matcher: exact matching first, then a trigram index lookup
+ * with edit-distance verification when nothing matches verbatim.
+ */
+public final class FuzzyIntentMatcher implements IntentMatcher {
+
+    private final ExactIntentMatcher exact;
+    private final TrigramIndex index;
+    private final IntentScorer scorer;
+    private final int size;
+
+    private FuzzyIntentMatcher(ExactIntentMatcher exact, TrigramIndex index, IntentScorer scorer, int size) {
+        this.exact = exact;
+        this.index = index;
+        this.scorer = scorer;
+        this.size = size;
+    }
+
+    public static FuzzyIntentMatcher compile(List<Intent> intents, int maxEdits, TextNormalizer normalizer) {
+        TriggerTable table = TriggerTable.of(intents, normalizer);
+        IntentScorer scorer = IntentScorer.of(table);
+        int[] budgets = new int[table.size()];
+        for (int i = 0; i < budgets.length; i++) {
+            budgets[i] = editBudget(table.triggers[i].length(), maxEdits);
+        }
+        return new FuzzyIntentMatcher(ExactIntentMatcher.compile(table, scorer),
+                TrigramIndex.build(List.of(table.triggers), budgets), scorer, table.size());
+    }
+
+    /**
+     * Short triggers tolerate fewer typos: none below 4 characters, one below 8
+     */
+    static int editBudget(int length, int maxEdits) {
+        return Math.min(maxEdits, length / 4);
+    }
+
+    @Override
+    public IntentMatchResult rank(String normalizedMessage) {
+        if (normalizedMessage == null || size == 0) {
+            return IntentMatchResult.NONE;
+        }
+        IntentScorer.Ranking ranking = scorer.newRanking(normalizedMessage.length());
+        exact.collect(normalizedMessage, ranking);
+        if (ranking.isEmpty()) {
+            index.search(normalizedMessage, ranking::offer);
+        }
+        return ranking.toResult();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,22 @@
+package com.whatsapp.chatbot.matching;
+
+import com.whatsapp.chatbot.entity.Intent;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Candidate intents for a message, best first
+ */
+public record IntentMatchResult(List<ScoredIntent> ranked) {
+
+    public static final IntentMatchResult NONE = new IntentMatchResult(List.of());
+
+    public Optional<Intent> best() {
+        return ranked.isEmpty() ? Optional.empty() : Optional.of(ranked.get(0).intent());
+    }
+
+    public List<ScoredIntent> runnerUps() {
+        return ranked.size() <= 1 ? List.of() : ranked.subList(1, ranked.size());
+    }
+}
@@ -0,0 +1,30 @@
+package com.whatsapp.chatbot.matching;
+
+import com.whatsapp.chatbot.entity.Intent;
+
+import java.util.Optional;
+
+/**
+ * Compiled, immutable matcher over the active intents.
+ * Messages passed in must already be normalized with the same
+ * {@link com.whatsapp.chatbot.text.TextNormalizer} the triggers were compiled with.
+ */
+public interface IntentMatcher {
+
+    /**
+     * Rank the candidate intents for a normalized message, best first
+     */
+    IntentMatchResult rank(String normalizedMessage);
+
+    /**
+     * Best intent for a normalized message
+     */
+    default Optional<Intent> match(String normalizedMessage) {
+        return rank(normalizedMessage).best();
+    }
+
+    /**
+     * Number of compiled triggers
+     */
+    int size();
+}
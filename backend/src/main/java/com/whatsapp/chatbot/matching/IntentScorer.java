@@ -0,0 +1,144 @@
+package com.whatsapp.chatbot.matching;
+
+import com.whatsapp.chatbot.entity.Intent;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ranks candidate intents by match quality using per-trigger features computed once per snapshot.
+ * <p>
+ * score = priority + 0.5 * coverage + 0.3 * specificity + 0.1 * recency, where coverage is the
+ * share of the message covered by the trigger (discounted by edits), specificity grows with the
+ * trigger's word count, and recency is the intent's update time scaled to the snapshot's range.
+ * A priority step outweighs all other features combined.
+ */
+final class IntentScorer {
+
+    static final int TOP_K = 3;
+
+    private static final double COVERAGE_WEIGHT = 0.5;
+    private static final double SPECIFICITY_WEIGHT = 0.3;
+    private static final double RECENCY_WEIGHT = 0.1;
+    private static final int MAX_SPECIFIC_WORDS = 5;
+
+    private final Intent[] intents;
+    private final int[] triggerLengths;
+    // Message-independent part of each trigger's score
+    private final double[] priors;
+
+    private IntentScorer(Intent[] intents, int[] triggerLengths, double[] priors) {
+        this.intents = intents;
+        this.triggerLengths = triggerLengths;
+        this.priors = priors;
+    }
+
+    static IntentScorer of(TriggerTable table) {
+        int n = table.size();
+        long oldest = Long.MAX_VALUE;
+        long newest = Long.MIN_VALUE;
+        for (Intent intent : table.intents) {
+            long t = updatedAt(intent);
+            oldest = Math.min(oldest, t);
+            newest = Math.max(newest, t);
+        }
+        int[] lengths = new int[n];
+        double[] priors = new double[n];
+        for (int id = 0; id < n; id++) {
+            String trigger = table.triggers[id];
+            Intent intent = table.intents[id];
+            lengths[id] = trigger.length();
+            double specificity = Math.min(wordCount(trigger), MAX_SPECIFIC_WORDS) / (double) MAX_SPECIFIC_WORDS;
+            double recency = newest > oldest ? (updatedAt(intent) - oldest) / (double) (newest - oldest) : 0;
+            priors[id] = intent.getPriority() + SPECIFICITY_WEIGHT * specificity + RECENCY_WEIGHT * recency;
+        }
+        return new IntentScorer(table.intents, lengths, priors);
+    }
+
+    Ranking newRanking(int messageLength) {
+        return new Ranking(messageLength);
+    }
+
+    private static long updatedAt(Intent intent) {
+        Instant t = intent.getUpdatedAt() != null ? intent.getUpdatedAt() : intent.getCreatedAt();
+        return t != null ? t.toEpochMilli() : 0;
+    }
+
+    private static int wordCount(String trigger) {
+        int words = 0;
+        boolean inWord = false;
+        for (int i = 0; i < trigger.length(); i++) {
+            boolean letter = Character.isLetterOrDigit(trigger.charAt(i));
+            if (letter && !inWord) {
+                words++;
+            }
+            inWord = letter;
+        }
+        return Math.max(words, 1);
+    }
+
+    /**
+     * Fixed-size top-k of candidates for one message; offering a candidate does not allocate
+     */
+    final class Ranking {
+        private final int messageLength;
+        private final int[] ids = new int[TOP_K];
+        private final double[] scores = new double[TOP_K];
+        private int size;
+
+        private Ranking(int messageLength) {
+            this.messageLength = Math.max(messageLength, 1);
+        }
+
+        void offer(int id, int edits) {
+            int length = triggerLengths[id];
+            double coverage = Math.min(1.0, (length - edits) / (double) messageLength);
+            double score = priors[id] + COVERAGE_WEIGHT * coverage;
+
+            // A trigger can be reported more than once; keep its best score
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    if (score <= scores[i]) {
+                        return;
+                    }
+                    remove(i);
+                    break;
+                }
+            }
+            if (size == TOP_K && score <= scores[TOP_K - 1]) {
+                return;
+            }
+            int pos = Math.min(size, TOP_K - 1);
+            while (pos > 0 && scores[pos - 1] < score) {
+                ids[pos] = ids[pos - 1];
+                scores[pos] = scores[pos - 1];
+                pos--;
+            }
+            ids[pos] = id;
+            scores[pos] = score;
+            size = Math.min(size + 1, TOP_K);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        IntentMatchResult toResult() {
+            if (size == 0) {
+                return IntentMatchResult.NONE;
+            }
+            List<ScoredIntent> ranked = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                ranked.add(new ScoredIntent(intents[ids[i]], scores[i]));
+            }
+            return new IntentMatchResult(List.copyOf(ranked));
+        }
+
+        private void remove(int index) {
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            System.arraycopy(scores, index + 1, scores, index, size - index - 1);
+            size--;
+        }
+    }
+}
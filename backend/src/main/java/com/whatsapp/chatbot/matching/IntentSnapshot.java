@@ -0,0 +1,88 @@
+package com.whatsapp.chatbot.matching;
+
+import com.whatsapp.chatbot.client.PreparedMessage;
+import com.whatsapp.chatbot.entity.Intent;
+import com.whatsapp.chatbot.text.Stemmer;
+import com.whatsapp.chatbot.text.TextNormalizer;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable, versioned set of active intents together with their compiled matcher and serialized
+ * replies. Published as a whole so readers always see a consistent matcher and response set.
+ */
+@Getter
+public final class IntentSnapshot {
+
+    private final long version;
+    private final Instant builtAt;
+    private final MatchingStrategy strategy;
+    private final IntentMatcher matcher;
+    private final Map<UUID, Intent> intents;
+    private final Map<UUID, PreparedMessage> replies;
+
+    private IntentSnapshot(long version, Instant builtAt, MatchingStrategy strategy,
+                           IntentMatcher matcher, Map<UUID, Intent> intents, Map<UUID, PreparedMessage> replies) {
+        this.version = version;
+        this.builtAt = builtAt;
+        this.strategy = strategy;
+        this.matcher = matcher;
+        this.intents = intents;
+        this.replies = replies;
+    }
+
+    public static IntentSnapshot build(long version, List<Intent> intents, MatchingStrategy strategy,
+                                       int maxEdits, TextNormalizer normalizer) {
+        return build(version, intents, strategy, maxEdits, normalizer, null);
+    }
+
+    /**
+     * @param replyEncoder serializes each intent's response ahead of sending; null to skip
+     */
+    public static IntentSnapshot build(long version, List<Intent> intents, MatchingStrategy strategy,
+                                       int maxEdits, TextNormalizer normalizer,
+                                       Function<String, PreparedMessage> replyEncoder) {
+        Map<UUID, Intent> byId = intents.stream()
+                .filter(Intent::isActive)
+                .collect(Collectors.toUnmodifiableMap(Intent::getId, Function.identity()));
+        Map<UUID, PreparedMessage> replies = replyEncoder == null ? Map.of() : byId.values().stream()
+                .filter(intent -> intent.getResponse() != null)
+                .collect(Collectors.toUnmodifiableMap(Intent::getId, intent -> replyEncoder.apply(intent.getResponse())));
+        return new IntentSnapshot(version, Instant.now(), strategy, strategy.compile(intents, maxEdits, normalizer),
+                byId, replies);
+    }
+
+    public static IntentSnapshot empty() {
+        return new IntentSnapshot(0, Instant.now(), MatchingStrategy.EXACT, ExactIntentMatcher.compile(List.of(), new TextNormalizer(Stemmer.NONE)), Map.of(), Map.of());
+    }
+
+    public Optional<Intent> match(String normalizedMessage) {
+        return matcher.match(normalizedMessage);
+    }
+
+    public IntentMatchResult rank(String normalizedMessage) {
+        return matcher.rank(normalizedMessage);
+    }
+
+    public Optional<Intent> findById(UUID id) {
+        return Optional.ofNullable(intents.get(id));
+    }
+
+    /**
+     * The intent's response, serialized when this snapshot was built
+     */
+    public Optional<PreparedMessage> findReply(UUID id) {
+        return Optional.ofNullable(replies.get(id));
+    }
+
+    public int size() {
+        return intents.size();
+    }
+}
@@ -0,0 +1,34 @@
+package com.whatsapp.chatbot.matching;
+
+import com.whatsapp.chatbot.entity.Intent;
+import com.whatsapp.chatbot.text.TextNormalizer;
+
+import java.util.List;
+
+/**
+ * How inbound messages are matched against intent triggers
+ */
+public enum MatchingStrategy {
+
+    /**
+     * Triggers must occur verbatim (after normalization) on word boundaries
+     */
+    EXACT {
+        @Override
+        public IntentMatcher compile(List<Intent> intents, int maxEdits, TextNormalizer normalizer) {
+            return ExactIntentMatcher.compile(intents, normalizer);
+        }
+    },
+
+    /**
+     * Exact matching first, then a trigram lookup tolerating a bounded number of typos
+     */
+    FUZZY {
+        @Override
+        public IntentMatcher compile(List<Intent> intents, int maxEdits, TextNormalizer normalizer) {
+            return FuzzyIntentMatcher.compile(intents, maxEdits, normalizer);
+        }
+    };
+
+    public abstract IntentMatcher compile(List<Intent> intents, int maxEdits, TextNormalizer normalizer);
+}
@@ -0,0 +1,9 @@
+package com.whatsapp.chatbot.matching;
+
+import com.whatsapp.chatbot.entity.Intent;
+
+/**
+ * A candidate intent and its match score; higher is better
+ */
+public record ScoredIntent(Intent intent, double score) {
+}
@@ -0,0 +1,41 @@
+package com.whatsapp.chatbot.matching;
+
+import com.whatsapp.chatbot.entity.Intent;
+import com.whatsapp.chatbot.text.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Normalized triggers of the active intents; a trigger's index is its id in every matcher
+ */
+final class TriggerTable {
+
+    final String[] triggers;
+    final Intent[] intents;
+
+    private TriggerTable(String[] triggers, Intent[] intents) {
+        this.triggers = triggers;
+        this.intents = intents;
+    }
+
+    static TriggerTable of(List<Intent> intents, TextNormalizer normalizer) {
+        List<String> triggers = new ArrayList<>(intents.size());
+        List<Intent> owners = new ArrayList<>(intents.size());
+        for (Intent intent : intents) {
+            if (!intent.isActive() || intent.getTrigger() == null) {
+                continue;
+            }
+            String trigger = normalizer.normalize(intent.getTrigger());
+            if (!trigger.isEmpty()) {
+                triggers.add(trigger);
+                owners.add(intent);
+            }
+        }
+        return new TriggerTable(triggers.toArray(new String[0]), owners.toArray(new Intent[0]));
+    }
+
+    int size() {
+        return triggers.length;
+    }
+}
@@ -0,0 +1,346 @@
+package com.whatsapp.chatbot.matching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Immutable trigram inverted index for approximate substring search.
+ * Candidates are filtered with the q-gram lemma (one edit destroys at most three trigrams)
+ * and then verified with a bounded semi-global edit distance, computed bit-parallel
+ * (Myers) for terms of up to 64 characters.
+ */
+public final class TrigramIndex {
+
+    /**
+     * Callback for a verified term; {@code distance} is the best edit distance found
+     */
+    @FunctionalInterface
+    public interface HitListener {
+        void onHit(int termId, int distance);
+    }
+
+    private static final int Q = 3;
+    // Pooled rather than thread-local: with virtual threads every request runs on a fresh thread,
+    // which would allocate term-sized scratch arrays per search. Searches are CPU-bound, so a
+    // pool sized to the cores covers steady state; surplus scratch under bursts is dropped.
+    private static final BlockingQueue<Scratch> SCRATCH =
+            new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+
+    // Sorted distinct trigram keys and, for each, the ids of the terms containing it
+    private final long[] grams;
+    private final int[][] postings;
+    private final String[] terms;
+    private final int[] maxEdits;
+    private final int[] minShared;
+
+    private TrigramIndex(long[] grams, int[][] postings, String[] terms, int[] maxEdits, int[] minShared) {
+        this.grams = grams;
+        this.postings = postings;
+        this.terms = terms;
+        this.maxEdits = maxEdits;
+        this.minShared = minShared;
+    }
+
+    /**
+     * Index terms with a per-term edit budget; terms with a budget of zero are not indexed
+     */
+    public static TrigramIndex build(List<String> terms, int[] maxEdits) {
+        Map<Long, List<Integer>> byGram = new HashMap<>();
+        int[] minShared = new int[terms.size()];
+        for (int id = 0; id < terms.size(); id++) {
+            if (maxEdits[id] <= 0) {
+                continue;
+            }
+            String term = terms.get(id);
+            Set<Long> distinct = new HashSet<>();
+            for (int i = 0; i < paddedGramCount(term); i++) {
+                distinct.add(gramAt(term, i));
+            }
+            // The padded edge grams need not occur in the text, so only inner grams count
+            // towards the bound; floored at one so every candidate shares a trigram with the text
+            Set<Long> inner = new HashSet<>();
+            for (int i = 1; i < paddedGramCount(term) - 1; i++) {
+                inner.add(gramAt(term, i));
+            }
+            minShared[id] = Math.max(1, inner.size() - Q * maxEdits[id]);
+            for (Long gram : distinct) {
+                byGram.computeIfAbsent(gram, k -> new ArrayList<>()).add(id);
+            }
+        }
+
+        long[] grams = byGram.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        int[][] postings = new int[grams.length][];
+        for (int i = 0; i < grams.length; i++) {
+            postings[i] = byGram.get(grams[i]).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return new TrigramIndex(grams, postings, terms.toArray(new String[0]), maxEdits.clone(), minShared);
+    }
+
+    /**
+     * Report every indexed term that occurs in {@code text} within its edit budget
+     */
+    public void search(String text, HitListener listener) {
+        if (terms.length == 0 || text.isEmpty()) {
+            return;
+        }
+        Scratch scratch = SCRATCH.poll();
+        if (scratch == null) {
+            scratch = new Scratch();
+        }
+        int[] counts = scratch.counts(terms.length);
+        int[] firstSeen = scratch.firstSeen(terms.length);
+        int[] lastSeen = scratch.lastSeen(terms.length);
+        int touchedCount = 0;
+        int[] touched = scratch.touched(terms.length);
+
+        int gramCount = paddedGramCount(text);
+        for (int i = 0; i < gramCount; i++) {
+            int slot = Arrays.binarySearch(grams, gramAt(text, i));
+            if (slot < 0) {
+                continue;
+            }
+            for (int id : postings[slot]) {
+                if (counts[id]++ == 0) {
+                    touched[touchedCount++] = id;
+                    firstSeen[id] = i;
+                }
+                lastSeen[id] = i;
+            }
+        }
+
+        // The text is encoded once so each verification only indexes arrays
+        scratch.encode(text);
+        for (int t = 0; t < touchedCount; t++) {
+            int id = touched[t];
+            if (counts[id] >= minShared[id]) {
+                // An occurrence spans at most length + edits characters and contains a shared
+                // trigram, so only the text around the shared trigrams needs verifying
+                int span = terms[id].length() + maxEdits[id];
+                int from = Math.max(0, firstSeen[id] - span);
+                int to = Math.min(text.length(), lastSeen[id] + span);
+                int distance = terms[id].length() <= Long.SIZE
+                        ? bitParallelDistance(terms[id], from, to, maxEdits[id], scratch)
+                        : substringDistance(terms[id], text, maxEdits[id], scratch);
+                if (distance <= maxEdits[id]) {
+                    listener.onHit(id, distance);
+                }
+            }
+            counts[id] = 0;
+        }
+        scratch.release();
+        SCRATCH.offer(scratch);
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    /**
+     * Smallest edit distance between {@code pattern} and any substring of
+     * {@code [from, to)} of the text encoded in {@code scratch}, using Myers' bit-vector algorithm in search mode;
+     * returns {@code limit + 1} if over budget
+     */
+    static int bitParallelDistance(String pattern, int from, int to, int limit, Scratch scratch) {
+        int m = pattern.length();
+        long[] peq = scratch.peq;
+        for (int i = 0; i < m; i++) {
+            int code = scratch.codeOf(pattern.charAt(i));
+            if (code >= 0) {
+                peq[code] |= 1L << i;
+            }
+        }
+
+        int[] codes = scratch.codes;
+        long last = 1L << (m - 1);
+        long pv = -1L;
+        long mv = 0L;
+        int score = m;
+        int best = m;
+        for (int j = from; j < to && best > 0; j++) {
+            long eq = peq[codes[j]];
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & last) != 0) {
+                score++;
+            } else if ((mh & last) != 0) {
+                score--;
+            }
+            // No carry into row 0: a match may start anywhere in the text
+            ph <<= 1;
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+            best = Math.min(best, score);
+        }
+
+        for (int i = 0; i < m; i++) {
+            int code = scratch.codeOf(pattern.charAt(i));
+            if (code >= 0) {
+                peq[code] = 0;
+            }
+        }
+        return best > limit ? limit + 1 : best;
+    }
+
+    /**
+     * Smallest edit distance between {@code pattern} and any substring of {@code text}
+     * (Sellers' algorithm), used for terms too long for one bit vector;
+     * returns {@code limit + 1} once the budget is exceeded
+     */
+    static int substringDistance(String pattern, String text, int limit, Scratch scratch) {
+        int m = pattern.length();
+        int[] prev = scratch.row(0, m + 1);
+        int[] curr = scratch.row(1, m + 1);
+        for (int i = 0; i <= m; i++) {
+            prev[i] = i;
+        }
+        int best = prev[m];
+        for (int j = 1; j <= text.length() && best > 0; j++) {
+            char c = text.charAt(j - 1);
+            curr[0] = 0;
+            for (int i = 1; i <= m; i++) {
+                int cost = pattern.charAt(i - 1) == c ? 0 : 1;
+                curr[i] = Math.min(Math.min(curr[i - 1] + 1, prev[i] + 1), prev[i - 1] + cost);
+            }
+            best = Math.min(best, curr[m]);
+            int[] swap = prev;
+            prev = curr;
+            curr = swap;
+        }
+        return best > limit ? limit + 1 : best;
+    }
+
+    private static int paddedGramCount(String s) {
+        return s.length() + 2 - Q + 1;
+    }
+
+    // Trigram i of " " + s + " ", packed into the low 48 bits of a long
+    private static long gramAt(String s, int i) {
+        long key = 0;
+        for (int k = i; k < i + Q; k++) {
+            char c = k == 0 || k == s.length() + 1 ? ' ' : s.charAt(k - 1);
+            key = (key << 16) | c;
+        }
+        return key;
+    }
+
+    static final class Scratch {
+        private static final int ASCII = 128;
+
+        private int[] counts = new int[0];
+        private int[] touched = new int[0];
+        private int[] firstSeen = new int[0];
+        private int[] lastSeen = new int[0];
+        private final int[][] rows = {new int[32], new int[32]};
+
+        // Text encoded as dense per-query character codes; peq holds one term's
+        // position masks by code and is cleared after every verification
+        private int[] codes = new int[64];
+        private long[] peq = new long[64];
+        private final int[] asciiCodes = new int[ASCII];
+        private char[] otherChars = new char[16];
+        private int[] otherCodes = new int[16];
+        private int otherCount;
+        private String encoded;
+
+        Scratch() {
+            Arrays.fill(asciiCodes, -1);
+        }
+
+        void encode(String text) {
+            if (codes.length < text.length()) {
+                codes = new int[text.length()];
+            }
+            int alphabet = 0;
+            for (int j = 0; j < text.length(); j++) {
+                char c = text.charAt(j);
+                int code = codeOf(c);
+                if (code < 0) {
+                    code = alphabet++;
+                    if (c < ASCII) {
+                        asciiCodes[c] = code;
+                    } else {
+                        if (otherCount == otherChars.length) {
+                            otherChars = Arrays.copyOf(otherChars, otherCount * 2);
+                            otherCodes = Arrays.copyOf(otherCodes, otherCount * 2);
+                        }
+                        otherChars[otherCount] = c;
+                        otherCodes[otherCount++] = code;
+                    }
+                }
+                codes[j] = code;
+            }
+            if (peq.length < alphabet) {
+                peq = new long[alphabet];
+            }
+            encoded = text;
+        }
+
+        int codeOf(char c) {
+            if (c < ASCII) {
+                return asciiCodes[c];
+            }
+            for (int i = 0; i < otherCount; i++) {
+                if (otherChars[i] == c) {
+                    return otherCodes[i];
+                }
+            }
+            return -1;
+        }
+
+        void release() {
+            for (int j = 0; j < encoded.length(); j++) {
+                char c = encoded.charAt(j);
+                if (c < ASCII) {
+                    asciiCodes[c] = -1;
+                }
+            }
+            otherCount = 0;
+            encoded = null;
+        }
+
+        int[] counts(int size) {
+            if (counts.length < size) {
+                counts = new int[size];
+            }
+            return counts;
+        }
+
+        int[] firstSeen(int size) {
+            if (firstSeen.length < size) {
+                firstSeen = new int[size];
+            }
+            return firstSeen;
+        }
+
+        int[] lastSeen(int size) {
+            if (lastSeen.length < size) {
+                lastSeen = new int[size];
+            }
+            return lastSeen;
+        }
+
+        int[] touched(int size) {
+            if (touched.length < size) {
+                touched = new int[size];
+            }
+            return touched;
+        }
+
+        int[] row(int which, int size) {
+            if (rows[which].length < size) {
+                rows[which] = new int[size];
+            }
+            return rows[which];
+        }
+    }
+}
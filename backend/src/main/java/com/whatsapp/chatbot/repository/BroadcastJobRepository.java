@@ -0,0 +1,17 @@
+package com.whatsapp.chatbot.repository;
+
+import com.whatsapp.chatbot.entity.BroadcastJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface BroadcastJobRepository extends JpaRepository<BroadcastJob, UUID> {
+
+    List<BroadcastJob> findByStatusIn(Collection<BroadcastJob.Status> statuses);
+
+    List<BroadcastJob> findTop50ByOrderByCreatedAtDesc();
+}
@@ -27,6 +27,12 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, UUID>
     
     @Query("SELECT cm FROM ChatMessage cm WHERE cm.message ILIKE %:keyword%")
     List<ChatMessage> searchByMessageContent(@Param("keyword") String keyword);
+
+    /**
+     * Search on the stored normalizer output; the keyword must be normalized the same way
+     */
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.normalizedMessage LIKE %:keyword%")
+    List<ChatMessage> searchByNormalizedContent(@Param("keyword") String normalizedKeyword);
     
     @Query("SELECT COUNT(cm) FROM ChatMessage cm WHERE cm.conversation = :conversation AND cm.direction = :direction")
     long countByConversationAndDirection(@Param("conversation") Conversation conversation, 
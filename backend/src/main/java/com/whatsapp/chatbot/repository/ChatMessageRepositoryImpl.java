@@ -3,15 +3,20 @@ package com.whatsapp.chatbot.repository;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.WriteBatch;
 import com.whatsapp.chatbot.entity.ChatMessage;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 
 @Repository
 public class ChatMessageRepositoryImpl {
     private static final String COLLECTION_NAME = "conversations";
+    // Firestore rejects batched writes with more operations than this
+    private static final int MAX_BATCH_WRITES = 500;
     
     private final Firestore firestore;
 
@@ -22,7 +27,7 @@ public class ChatMessageRepositoryImpl {
     public ChatMessage save(ChatMessage message) {
         try {
             firestore.collection(COLLECTION_NAME)
-                    .document(String.valueOf(message.getId()))
+                    .document(documentId(message))
                     .set(message)
                     .get();
             return message;
@@ -31,6 +36,30 @@ public class ChatMessageRepositoryImpl {
         }
     }
 
+    /**
+     * Write the messages as atomic batched writes, one commit round trip per 500 messages
+     */
+    public List<ChatMessage> saveAll(Iterable<ChatMessage> messages) {
+        List<ChatMessage> saved = new ArrayList<>();
+        try {
+            WriteBatch batch = firestore.batch();
+            for (ChatMessage message : messages) {
+                batch.set(firestore.collection(COLLECTION_NAME).document(documentId(message)), message);
+                saved.add(message);
+                if (batch.getMutationsSize() == MAX_BATCH_WRITES) {
+                    batch.commit().get();
+                    batch = firestore.batch();
+                }
+            }
+            if (batch.getMutationsSize() > 0) {
+                batch.commit().get();
+            }
+            return saved;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Failed to save chat messages", e);
+        }
+    }
+
     public List<ChatMessage> findByConversationId(String conversationId) {
         try {
             return firestore.collection(COLLECTION_NAME)
@@ -70,4 +99,12 @@ public class ChatMessageRepositoryImpl {
             throw new RuntimeException("Failed to delete old messages", e);
         }
     }
+
+    // Messages are not saved through JPA, so nothing else assigns the id
+    private static String documentId(ChatMessage message) {
+        if (message.getId() == null) {
+            message.setId(UUID.randomUUID());
+        }
+        return message.getId().toString();
+    }
 }
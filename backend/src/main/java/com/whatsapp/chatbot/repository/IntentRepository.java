@@ -2,7 +2,6 @@ package com.whatsapp.chatbot.repository;
 
 import com.whatsapp.chatbot.entity.Intent;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -15,8 +14,5 @@ public interface IntentRepository extends JpaRepository<Intent, UUID> {
     
     List<Intent> findByActiveTrue();
     
-    @Query("SELECT i FROM Intent i WHERE i.active = true AND LOWER(i.trigger) LIKE LOWER(CONCAT('%', :query, '%'))")
-    List<Intent> findMatchingIntents(String query);
-    
     boolean existsByName(String name);
 } 
\ No newline at end of file
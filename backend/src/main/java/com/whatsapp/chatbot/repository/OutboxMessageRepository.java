@@ -0,0 +1,64 @@
+package com.whatsapp.chatbot.repository;
+
+import com.whatsapp.chatbot.entity.OutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, UUID> {
+
+    /**
+     * Claim up to {@code limit} due messages, oldest first, in one statement. Rows locked by another
+     * dispatcher's claim are skipped instead of waited for, and a claim whose lease has run out (its
+     * dispatcher died) becomes due again. A message waits while an earlier one to the same recipient is
+     * pending or sending, including one backing off after a failed attempt, so at most one message per
+     * recipient is claimed and replies arrive in order. The returned rows are SENDING with their attempt
+     * counted.
+     */
+    @Transactional
+    @Query(nativeQuery = true, value = "UPDATE outbox_messages SET status = 'SENDING', lease_until = :leaseUntil, "
+            + "attempts = attempts + 1 "
+            + "WHERE id IN (SELECT m.id FROM outbox_messages m "
+            + "WHERE ((m.status = 'PENDING' AND m.next_attempt_at <= :now) OR (m.status = 'SENDING' AND m.lease_until < :now)) "
+            + "AND NOT EXISTS (SELECT 1 FROM outbox_messages e WHERE e.recipient = m.recipient "
+            + "AND e.sequence_number < m.sequence_number AND e.status IN ('PENDING', 'SENDING')) "
+            + "ORDER BY m.sequence_number LIMIT :limit FOR UPDATE OF m SKIP LOCKED) "
+            + "RETURNING *")
+    List<OutboxMessage> claimDue(@Param("now") Instant now, @Param("leaseUntil") Instant leaseUntil,
+                                 @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = com.whatsapp.chatbot.entity.OutboxMessage.Status.SENT, "
+            + "m.sentAt = :sentAt, m.leaseUntil = null, m.lastError = null WHERE m.id IN :ids")
+    int markSent(@Param("ids") Collection<UUID> ids, @Param("sentAt") Instant sentAt);
+
+    /**
+     * Release a claim after a failed send, either for another attempt at {@code nextAttemptAt} or for good
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = :status, m.nextAttemptAt = :nextAttemptAt, "
+            + "m.leaseUntil = null, m.lastError = :lastError WHERE m.id = :id")
+    int markFailed(@Param("id") UUID id, @Param("status") OutboxMessage.Status status,
+                   @Param("nextAttemptAt") Instant nextAttemptAt, @Param("lastError") String lastError);
+
+    /**
+     * Delete up to {@code limit} finished messages created before {@code cutoff}; batched so one purge
+     * never holds locks for long
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM outbox_messages WHERE id IN (SELECT id FROM outbox_messages "
+            + "WHERE status IN ('SENT', 'FAILED') AND created_at < :cutoff LIMIT :limit)")
+    int deleteFinishedBefore(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+}
@@ -0,0 +1,53 @@
+package com.whatsapp.chatbot.security;
+
+import com.whatsapp.chatbot.service.WebhookAdmission;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sheds webhook deliveries with 503 and Retry-After when {@link WebhookAdmission} reports saturation,
+ * so Meta's redelivery spreads the load instead of requests piling up in Tomcat
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    private final WebhookAdmission admission;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Verification handshakes are cheap and must keep working under load
+        return !HttpMethod.POST.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        WebhookAdmission.Decision decision = admission.tryAcquire();
+        if (decision != WebhookAdmission.Decision.ACCEPTED) {
+            log.debug("Shedding webhook: {}", decision);
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(admission.getRetryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"status\":\"error\",\"message\":\"Overloaded, retry later\"}");
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            admission.release(System.nanoTime() - started);
+        }
+    }
+}
@@ -0,0 +1,514 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.client.GraphApiErrors;
+import com.whatsapp.chatbot.client.PreparedMessage;
+import com.whatsapp.chatbot.config.BroadcastConfig;
+import com.whatsapp.chatbot.dto.BroadcastProgress;
+import com.whatsapp.chatbot.dto.WhatsAppResponse;
+import com.whatsapp.chatbot.entity.BroadcastJob;
+import com.whatsapp.chatbot.repository.BroadcastJobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sends one template message to a large recipient list. The list is spooled to a local file first, so
+ * the upload can be streamed and the job survives a restart; sending then goes through
+ * {@link OutboundScheduler}, sharing its rate limits and connection pool with chatbot replies. Each job
+ * keeps at most {@code concurrency} messages queued or in flight and checkpoints the point before which
+ * every recipient is done. Delivery is at least once: messages in flight when the process dies are sent
+ * again on resume.
+ */
+@Slf4j
+@Service
+public class BroadcastService {
+
+    private static final long QUEUE_FULL_BACKOFF_MILLIS = 100;
+    private static final int MIN_DIGITS = 7;
+    private static final int MAX_DIGITS = 15;
+    private static final String FAILURES_HEADER = "recipient,error\n";
+
+    private final BroadcastJobRepository repository;
+    private final WhatsAppService whatsAppService;
+    private final OutboundScheduler outboundScheduler;
+    private final BroadcastConfig config;
+    private final Path directory;
+    private final ExecutorService runners;
+    private final Map<UUID, Run> runs = new ConcurrentHashMap<>();
+    private final Counter sentMessages;
+    private final Counter failedMessages;
+    private volatile boolean stopping;
+
+    public BroadcastService(BroadcastJobRepository repository, WhatsAppService whatsAppService,
+                            OutboundScheduler outboundScheduler, BroadcastConfig config, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.whatsAppService = whatsAppService;
+        this.outboundScheduler = outboundScheduler;
+        this.config = config;
+        this.directory = Path.of(config.getDirectory());
+        this.runners = Executors.newFixedThreadPool(config.getMaxRunningJobs(), new CustomizableThreadFactory("broadcast-"));
+        this.sentMessages = Counter.builder("whatsapp.broadcast.messages")
+                .description("Broadcast messages by outcome")
+                .tag("outcome", "sent")
+                .register(meterRegistry);
+        this.failedMessages = Counter.builder("whatsapp.broadcast.messages")
+                .description("Broadcast messages by outcome")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        Gauge.builder("whatsapp.broadcast.running", runs, Map::size)
+                .description("Broadcast jobs sending or waiting for a runner")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Spool the recipients and queue the job; returns once the list is safely on disk
+     */
+    public BroadcastJob create(String templateName, String languageCode, List<String> recipients) throws IOException {
+        Iterator<String> it = recipients.iterator();
+        return create(templateName, languageCode, () -> it.hasNext() ? it.next() : null);
+    }
+
+    /**
+     * Like {@link #create(String, String, List)} for a CSV with the phone number in the first column,
+     * read line by line so lists of millions never sit in memory. A header row counts as one invalid line.
+     */
+    public BroadcastJob create(String templateName, String languageCode, Reader csv) throws IOException {
+        BufferedReader reader = new BufferedReader(csv);
+        return create(templateName, languageCode, reader::readLine);
+    }
+
+    private BroadcastJob create(String templateName, String languageCode, LineSource lines) throws IOException {
+        Files.createDirectories(directory);
+        BroadcastJob job = repository.save(BroadcastJob.builder()
+                .templateName(templateName)
+                .languageCode(languageCode)
+                .status(BroadcastJob.Status.QUEUED)
+                .build());
+        Path file = recipientsFile(job.getId());
+        long total = 0;
+        long invalid = 0;
+        try (FileOutputStream out = new FileOutputStream(file.toFile());
+             Writer writer = new BufferedWriter(Channels.newWriter(out.getChannel(), StandardCharsets.US_ASCII))) {
+            for (String line = lines.next(); line != null; line = lines.next()) {
+                String recipient = normalizeRecipient(line);
+                if (recipient != null) {
+                    writer.write(recipient);
+                    writer.write('\n');
+                    total++;
+                } else if (!line.isBlank()) {
+                    invalid++;
+                }
+            }
+            writer.flush();
+            out.getFD().sync();
+        } catch (IOException | RuntimeException e) {
+            finish(job, BroadcastJob.Status.FAILED, "Reading recipients failed: " + e.getMessage());
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        job.setTotal(total);
+        job.setInvalid(invalid);
+        job = repository.save(job);
+        log.info("Broadcast {} of template {} queued for {} recipients ({} invalid lines)",
+                job.getId(), templateName, total, invalid);
+        start(job.getId());
+        return job;
+    }
+
+    public Optional<BroadcastProgress> progress(UUID id) {
+        return repository.findById(id).map(this::progressOf);
+    }
+
+    public List<BroadcastProgress> recent() {
+        return repository.findTop50ByOrderByCreatedAtDesc().stream().map(this::progressOf).toList();
+    }
+
+    /**
+     * Stop sending; messages already queued still go out
+     */
+    public Optional<BroadcastProgress> cancel(UUID id) {
+        Run run = runs.get(id);
+        if (run != null) {
+            run.cancelled = true;
+            return progress(id);
+        }
+        return repository.findById(id).map(job -> {
+            if (job.getStatus() == BroadcastJob.Status.QUEUED || job.getStatus() == BroadcastJob.Status.RUNNING) {
+                job = finish(job, BroadcastJob.Status.CANCELLED, null);
+            }
+            return progressOf(job);
+        });
+    }
+
+    /**
+     * Continue a cancelled or failed job from its last checkpoint
+     */
+    public Optional<BroadcastProgress> resume(UUID id) {
+        return repository.findById(id).map(job -> {
+            if (job.getStatus() == BroadcastJob.Status.CANCELLED || job.getStatus() == BroadcastJob.Status.FAILED) {
+                if (!Files.exists(recipientsFile(id))) {
+                    throw new IllegalStateException("Recipient list of broadcast " + id + " is gone");
+                }
+                job.setStatus(BroadcastJob.Status.QUEUED);
+                job.setFinishedAt(null);
+                job.setLastError(null);
+                job = repository.save(job);
+                start(id);
+            }
+            return progressOf(job);
+        });
+    }
+
+    /**
+     * CSV of the recipients that failed so far with the reason, or empty if none failed yet
+     */
+    public Optional<Path> failures(UUID id) {
+        Path file = failuresFile(id);
+        return Files.exists(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    /**
+     * Pick up jobs a previous run of the application did not finish
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        for (BroadcastJob job : repository.findByStatusIn(List.of(BroadcastJob.Status.QUEUED, BroadcastJob.Status.RUNNING))) {
+            if (Files.exists(recipientsFile(job.getId()))) {
+                log.info("Resuming broadcast {} at recipient {} of {}", job.getId(), job.getCheckpointIndex(), job.getTotal());
+                start(job.getId());
+            } else {
+                finish(job, BroadcastJob.Status.FAILED, "Recipient list missing on resume");
+            }
+        }
+    }
+
+    /**
+     * Running jobs checkpoint and stay RUNNING, so the next start resumes them
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stopping = true;
+        runners.shutdown();
+        if (!runners.awaitTermination(config.getStopTimeout().toMillis() + 5_000, TimeUnit.MILLISECONDS)) {
+            log.warn("Broadcast runners did not stop in time");
+        }
+    }
+
+    private void start(UUID id) {
+        Run run = new Run(id);
+        if (runs.putIfAbsent(id, run) == null) {
+            runners.execute(run);
+        }
+    }
+
+    private BroadcastProgress progressOf(BroadcastJob job) {
+        Run run = runs.get(job.getId());
+        return run == null || run.sent < 0
+                ? BroadcastProgress.of(job, job.getSent(), job.getFailed())
+                : BroadcastProgress.of(job, run.sent, run.failed);
+    }
+
+    private BroadcastJob finish(BroadcastJob job, BroadcastJob.Status status, String error) {
+        job.setStatus(status);
+        job.setFinishedAt(Instant.now());
+        job.setLastError(error);
+        return repository.save(job);
+    }
+
+    private Path recipientsFile(UUID id) {
+        return directory.resolve(id + ".recipients");
+    }
+
+    private Path failuresFile(UUID id) {
+        return directory.resolve(id + ".failures.csv");
+    }
+
+    /**
+     * Digits of the first CSV column, ignoring spaces, dashes, dots, brackets, quotes and a leading +;
+     * null unless that leaves a plausible E.164 number
+     */
+    static String normalizeRecipient(String line) {
+        StringBuilder digits = new StringBuilder(MAX_DIGITS);
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ',' || c == ';' || c == '\t') {
+                break;
+            }
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            } else if (" -.()+\"'".indexOf(c) < 0) {
+                return null;
+            }
+        }
+        return digits.length() >= MIN_DIGITS && digits.length() <= MAX_DIGITS ? digits.toString() : null;
+    }
+
+    private static String csvField(String value) {
+        return value == null ? "" : '"' + value.replace("\"", "\"\"").replace('\n', ' ').replace('\r', ' ') + '"';
+    }
+
+    @FunctionalInterface
+    private interface LineSource {
+        String next() throws IOException;
+    }
+
+    /**
+     * Sends one job. Recipients between the checkpoint (the watermark) and the next one to submit live
+     * in a ring of {@code concurrency} slots; sends complete in any order, and the watermark moves past
+     * a slot only once it and everything before it is done.
+     */
+    private final class Run implements Runnable {
+
+        private static final byte PENDING = 0;
+        private static final byte SENT = 1;
+        private static final byte FAILED = 2;
+
+        private final UUID id;
+        private final int size = config.getConcurrency();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition completed = lock.newCondition();
+        private final String[] recipients = new String[size];
+        private final long[] lineEnds = new long[size];
+        private final byte[] outcomes = new byte[size];
+        private final Throwable[] errors = new Throwable[size];
+        private long submitted;
+        private long watermark;
+        private long watermarkOffset;
+        // -1 until the checkpoint is loaded
+        private volatile long sent = -1;
+        private volatile long failed;
+        private volatile boolean cancelled;
+
+        Run(UUID id) {
+            this.id = id;
+        }
+
+        @Override
+        public void run() {
+            try {
+                send();
+            } catch (Exception e) {
+                log.error("Broadcast {} failed: {}", id, e.getMessage(), e);
+                repository.findById(id).ifPresent(job -> finish(job, BroadcastJob.Status.FAILED, e.getMessage()));
+            } finally {
+                runs.remove(id);
+            }
+        }
+
+        private void send() throws IOException, InterruptedException {
+            BroadcastJob job = repository.findById(id).orElse(null);
+            if (job == null) {
+                return;
+            }
+            if (cancelled) {
+                finish(job, BroadcastJob.Status.CANCELLED, null);
+                return;
+            }
+            job.setStatus(BroadcastJob.Status.RUNNING);
+            if (job.getStartedAt() == null) {
+                job.setStartedAt(Instant.now());
+            }
+            job = repository.save(job);
+            PreparedMessage message = whatsAppService.prepareTemplateMessage(job.getTemplateName(), job.getLanguageCode());
+
+            submitted = job.getCheckpointIndex();
+            watermark = submitted;
+            watermarkOffset = job.getCheckpointOffset();
+            failed = job.getFailed();
+            sent = job.getSent();
+            boolean exhausted = false;
+
+            try (FileChannel in = FileChannel.open(recipientsFile(id), StandardOpenOption.READ);
+                 FileChannel failuresOut = FileChannel.open(failuresFile(id),
+                         StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // Failures recorded after the checkpoint are recorded again on this run
+                failuresOut.truncate(job.getFailuresOffset());
+                failuresOut.position(job.getFailuresOffset());
+                Writer failures = new BufferedWriter(Channels.newWriter(failuresOut, StandardCharsets.UTF_8));
+                if (job.getFailuresOffset() == 0) {
+                    failures.write(FAILURES_HEADER);
+                }
+                BufferedReader reader = new BufferedReader(
+                        Channels.newReader(in.position(watermarkOffset), StandardCharsets.US_ASCII));
+                long offset = watermarkOffset;
+                long checkpointedAt = System.nanoTime();
+                while (!cancelled && !stopping) {
+                    String recipient = reader.readLine();
+                    if (recipient == null) {
+                        exhausted = true;
+                        break;
+                    }
+                    offset += recipient.length() + 1;
+                    awaitWatermark(submitted - size + 1, Long.MAX_VALUE, failures);
+                    if (!submit(recipient, offset, message)) {
+                        break;
+                    }
+                    if (System.nanoTime() - checkpointedAt > config.getCheckpointInterval().toNanos()) {
+                        job = checkpoint(job, failures, failuresOut);
+                        checkpointedAt = System.nanoTime();
+                    }
+                }
+                long deadline = stopping ? System.nanoTime() + config.getStopTimeout().toNanos() : Long.MAX_VALUE;
+                awaitWatermark(submitted, deadline, failures);
+                job = checkpoint(job, failures, failuresOut);
+            }
+
+            if (cancelled) {
+                finish(job, BroadcastJob.Status.CANCELLED, null);
+                log.info("Broadcast {} cancelled after {} of {} recipients", id, watermark, job.getTotal());
+            } else if (exhausted && watermark == submitted) {
+                finish(job, BroadcastJob.Status.COMPLETED, null);
+                log.info("Broadcast {} completed: {} sent, {} failed", id, sent, failed);
+            } else {
+                log.info("Broadcast {} stopped at recipient {} of {}; it resumes on the next start",
+                        id, watermark, job.getTotal());
+            }
+        }
+
+        // False when the application is stopping before the message could be queued
+        private boolean submit(String recipient, long lineEnd, PreparedMessage message) throws InterruptedException {
+            long index = submitted;
+            int slot = (int) (index % size);
+            lock.lock();
+            try {
+                recipients[slot] = recipient;
+                lineEnds[slot] = lineEnd;
+                outcomes[slot] = PENDING;
+                errors[slot] = null;
+                submitted = index + 1;
+            } finally {
+                lock.unlock();
+            }
+            while (true) {
+                CompletableFuture<WhatsAppResponse> result = outboundScheduler.submit(recipient, message);
+                if (result.isCompletedExceptionally()
+                        && result.handle((response, failure) -> failure).join() instanceof RejectedExecutionException) {
+                    // Queue full with replies or other jobs; wait for it to drain rather than fail the recipient
+                    if (stopping) {
+                        lock.lock();
+                        try {
+                            submitted = index;
+                        } finally {
+                            lock.unlock();
+                        }
+                        return false;
+                    }
+                    Thread.sleep(QUEUE_FULL_BACKOFF_MILLIS);
+                    continue;
+                }
+                result.whenComplete((response, failure) -> complete(slot, failure));
+                return true;
+            }
+        }
+
+        private void complete(int slot, Throwable failure) {
+            (failure == null ? sentMessages : failedMessages).increment();
+            lock.lock();
+            try {
+                outcomes[slot] = failure == null ? SENT : FAILED;
+                errors[slot] = failure;
+                completed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Move the watermark past finished recipients until it reaches {@code target} or the deadline
+         * passes, writing failures in order
+         */
+        private void awaitWatermark(long target, long deadline, Writer failures) throws IOException, InterruptedException {
+            StringBuilder lines = new StringBuilder();
+            lock.lock();
+            try {
+                while (true) {
+                    advance(lines);
+                    long remaining = deadline - System.nanoTime();
+                    if (watermark >= target || remaining <= 0) {
+                        break;
+                    }
+                    if (deadline == Long.MAX_VALUE) {
+                        completed.await();
+                    } else {
+                        completed.awaitNanos(remaining);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            failures.append(lines);
+        }
+
+        // Caller holds the lock
+        private void advance(StringBuilder failedLines) {
+            while (watermark < submitted) {
+                int slot = (int) (watermark % size);
+                if (outcomes[slot] == PENDING) {
+                    return;
+                }
+                if (outcomes[slot] == SENT) {
+                    sent++;
+                } else {
+                    failed++;
+                    String reason = GraphApiErrors.messageOf(errors[slot]);
+                    failedLines.append(recipients[slot]).append(',').append(csvField(reason)).append('\n');
+                }
+                watermarkOffset = lineEnds[slot];
+                recipients[slot] = null;
+                errors[slot] = null;
+                watermark++;
+            }
+        }
+
+        private BroadcastJob checkpoint(BroadcastJob job, Writer failures, FileChannel failuresOut)
+                throws IOException, InterruptedException {
+            awaitWatermark(0, 0, failures);
+            failures.flush();
+            failuresOut.force(false);
+            lock.lock();
+            try {
+                job.setCheckpointIndex(watermark);
+                job.setCheckpointOffset(watermarkOffset);
+                job.setSent(sent);
+                job.setFailed(failed);
+            } finally {
+                lock.unlock();
+            }
+            job.setFailuresOffset(failuresOut.position());
+            return repository.save(job);
+        }
+    }
+}
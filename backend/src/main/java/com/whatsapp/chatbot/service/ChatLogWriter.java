@@ -0,0 +1,123 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.entity.ChatMessage;
+import com.whatsapp.chatbot.entity.OutboxMessage;
+import com.whatsapp.chatbot.repository.ChatMessageRepository;
+import com.whatsapp.chatbot.repository.OutboxMessageRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes chat messages for concurrent callers as shared batches (group commit). A caller whose
+ * rows arrive while a batch is being written waits and has them written, together with everything
+ * else queued meanwhile, in the next one; no caller waits for a timer. The batch's replies are queued
+ * in the outbox only after its chat log is stored, so nothing is sent for a message that was not logged.
+ */
+@Component
+public class ChatLogWriter {
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final DistributionSummary batchRows;
+    private final Timer writeTime;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition written = lock.newCondition();
+    private List<Request> queued = new ArrayList<>();
+    private boolean writing;
+
+    public ChatLogWriter(ChatMessageRepository chatMessageRepository, OutboxMessageRepository outboxMessageRepository,
+                         MeterRegistry meterRegistry) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.batchRows = DistributionSummary.builder("chat.log.batch.rows")
+                .description("Chat messages written per batched write")
+                .register(meterRegistry);
+        this.writeTime = Timer.builder("chat.log.write")
+                .description("Time to write one batch of chat messages and replies")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Write the messages and queue the replies, returning once both are stored; throws if the batch
+     * they joined failed, in which case none of the replies was queued
+     */
+    public void write(List<ChatMessage> messages, List<OutboxMessage> replies) {
+        if (messages.isEmpty() && replies.isEmpty()) {
+            return;
+        }
+        Request request = new Request(messages, replies);
+        lock.lock();
+        try {
+            queued.add(request);
+            while (!request.done) {
+                if (writing) {
+                    written.awaitUninterruptibly();
+                    continue;
+                }
+                writing = true;
+                List<Request> batch = queued;
+                queued = new ArrayList<>();
+                lock.unlock();
+                // Stays set if the write dies with an Error, so no caller takes it for a success
+                RuntimeException failure = new IllegalStateException("Chat log write did not complete");
+                try {
+                    writeBatch(batch);
+                    failure = null;
+                } catch (RuntimeException e) {
+                    failure = e;
+                } finally {
+                    lock.lock();
+                    writing = false;
+                    for (Request r : batch) {
+                        r.failure = failure;
+                        r.done = true;
+                    }
+                    written.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (request.failure != null) {
+            throw request.failure;
+        }
+    }
+
+    private void writeBatch(List<Request> batch) {
+        List<ChatMessage> rows = new ArrayList<>();
+        List<OutboxMessage> replies = new ArrayList<>();
+        for (Request r : batch) {
+            rows.addAll(r.messages);
+            replies.addAll(r.replies);
+        }
+        long started = System.nanoTime();
+        chatMessageRepository.saveAll(rows);
+        if (!replies.isEmpty()) {
+            // One short Postgres transaction for the whole batch; the chat log lives in Firestore
+            outboxMessageRepository.saveAll(replies);
+        }
+        writeTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        batchRows.record(rows.size());
+    }
+
+    private static final class Request {
+        final List<ChatMessage> messages;
+        final List<OutboxMessage> replies;
+        boolean done;
+        RuntimeException failure;
+
+        Request(List<ChatMessage> messages, List<OutboxMessage> replies) {
+            this.messages = messages;
+            this.replies = replies;
+        }
+    }
+}
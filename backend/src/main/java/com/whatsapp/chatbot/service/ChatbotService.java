@@ -1,17 +1,22 @@
 package com.whatsapp.chatbot.service;
 
-import com.whatsapp.chatbot.client.WhatsAppClient;
-import com.whatsapp.chatbot.dto.WhatsAppEvent;
 import com.whatsapp.chatbot.entity.ChatMessage;
 import com.whatsapp.chatbot.entity.Conversation;
 import com.whatsapp.chatbot.entity.Intent;
+import com.whatsapp.chatbot.entity.OutboxMessage;
+import com.whatsapp.chatbot.event.IntentsChangedEvent;
 import com.whatsapp.chatbot.repository.ChatMessageRepository;
 import com.whatsapp.chatbot.repository.IntentRepository;
+import com.whatsapp.chatbot.text.TextNormalizer;
+import com.whatsapp.chatbot.webhook.InboundMessage;
+import com.whatsapp.chatbot.webhook.InboundWebhook;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -21,77 +26,103 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class ChatbotService {
 
-    private final WhatsAppClient whatsAppClient;
+    private static final String FALLBACK_REPLY = "I'm sorry, I don't understand. Could you please rephrase?";
+
+    private final OutboxDispatcher outboxDispatcher;
     private final IntentRepository intentRepository;
+    private final IntentMatchingService intentMatchingService;
     private final ChatMessageRepository chatMessageRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TextNormalizer textNormalizer;
+    private final MessageDeduplicator messageDeduplicator;
+    private final ChatLogWriter chatLogWriter;
+
+    /**
+     * Answer every message of a delivery, then store the messages and queue the replies in one batched
+     * write; the replies are sent by {@link OutboxDispatcher} once it has committed
+     */
+    public void handleWebhook(InboundWebhook webhook) {
+        log.debug("Processing {}", webhook);
+        List<ChatMessage> chatLog = new ArrayList<>();
+        List<OutboxMessage> replies = new ArrayList<>();
+        List<String> handledIds = new ArrayList<>();
+        webhook.messages().forEach(message -> reply(message, chatLog, replies, handledIds));
+        store(chatLog, replies, handledIds);
+    }
 
-    @Transactional
-    public void handleWebhookEvent(WhatsAppEvent event) {
-        log.debug("Processing webhook event: {}", event);
-        
-        event.getEntry().forEach(entry -> {
-            entry.getChanges().forEach(change -> {
-                if ("messages".equals(change.getField()) && change.getValue() != null) {
-                    handleMessage(change.getValue());
-                } else {
-                    log.debug("Skipping non-message change: field={}", change.getField());
-                }
-            });
-        });
+    /**
+     * Handle one inbound message; callers processing in parallel must keep messages
+     * from the same sender in order
+     */
+    public void handleMessage(InboundMessage message) {
+        List<ChatMessage> chatLog = new ArrayList<>(2);
+        List<OutboxMessage> replies = new ArrayList<>(1);
+        List<String> handledIds = new ArrayList<>(1);
+        reply(message, chatLog, replies, handledIds);
+        store(chatLog, replies, handledIds);
     }
 
-    private void handleMessage(WhatsAppEvent.Value value) {
-        if (value.getMessages() == null || value.getMessages().isEmpty()) {
-            log.debug("No messages in value object");
+    // Answers the message and collects the chat messages and reply to store instead of saving them one by one
+    private void reply(InboundMessage message, List<ChatMessage> chatLog, List<OutboxMessage> replies,
+                       List<String> handledIds) {
+        if (message.textBody() == null) {
+            log.debug("Skipping message without text body");
             return;
         }
+        // Meta redelivers webhooks it considers unacknowledged; drop repeats before any DB work
+        if (messageDeduplicator.isDuplicate(message.id())) {
+            log.debug("Skipping redelivered message {}", message.id());
+            return;
+        }
+        if (message.id() != null) {
+            handledIds.add(message.id());
+        }
+
+        String userId = message.from();
+        String conversationId = UUID.randomUUID().toString();
+        String userMessage = message.textBody();
+        // Normalized once and reused for matching, caching and the stored message
+        String normalizedMessage = textNormalizer.normalize(userMessage);
 
-        value.getMessages().forEach(message -> {
-            if (message.getText() == null || message.getText().getBody() == null) {
-                log.debug("Skipping message without text body");
-                return;
-            }
-
-            String userId = message.getFrom();
-            String conversationId = UUID.randomUUID().toString();
-            String userMessage = message.getText().getBody();
-
-            log.info("Processing message from {}: {}", userId, userMessage);
-
-            // Store inbound message
-            ChatMessage inboundMessage = ChatMessage.inbound(conversationId, userId, userMessage);
-            chatMessageRepository.save(inboundMessage);
-
-            // Find matching intent
-            Optional<Intent> matchingIntent = findMatchingIntent(userMessage);
-            
-            // Generate and send response
-            String response = matchingIntent
-                    .map(Intent::getResponse)
-                    .orElse("I'm sorry, I don't understand. Could you please rephrase?");
-
-            try {
-                whatsAppClient.sendMessage(userId, response);
-                
-                // Store outbound message
-                ChatMessage outboundMessage = ChatMessage.outbound(
-                    conversationId,
-                    userId,
-                    response,
-                    matchingIntent.map(i -> i.getId().toString()).orElse(null)
-                );
-                chatMessageRepository.save(outboundMessage);
-                
-                log.info("Sent response to {}: {}", userId, response);
-            } catch (Exception e) {
-                log.error("Failed to send response to user {}: {}", userId, e.getMessage(), e);
-            }
-        });
+        log.info("Processing message from {}: {}", userId, userMessage);
+
+        chatLog.add(ChatMessage.inbound(conversationId, userId, userMessage, normalizedMessage));
+
+        // Find matching intent
+        Optional<Intent> matchingIntent = findMatchingIntent(normalizedMessage);
+        
+        // The outbox row names the intent, so the reply is sent as serialized when the intents loaded
+        String response = matchingIntent
+                .map(Intent::getResponse)
+                .orElse(FALLBACK_REPLY);
+
+        chatLog.add(ChatMessage.outbound(
+            conversationId,
+            userId,
+            response,
+            matchingIntent.map(i -> i.getId().toString()).orElse(null)
+        ));
+        replies.add(OutboxMessage.reply(userId, response, matchingIntent.map(Intent::getId).orElse(null)));
+
+        log.info("Queued response to {}: {}", userId, response);
+    }
+
+    // A message whose chat log was not stored counts as unhandled, so its redelivery must not be dropped;
+    // nothing was sent for it, so answering the redelivery does not reply twice
+    private void store(List<ChatMessage> chatLog, List<OutboxMessage> replies, List<String> handledIds) {
+        try {
+            chatLogWriter.write(chatLog, replies);
+        } catch (RuntimeException e) {
+            handledIds.forEach(messageDeduplicator::forget);
+            throw e;
+        }
+        if (!replies.isEmpty()) {
+            outboxDispatcher.wakeUp();
+        }
     }
 
-    private Optional<Intent> findMatchingIntent(String message) {
-        List<Intent> matchingIntents = intentRepository.findMatchingIntents(message.toLowerCase());
-        return matchingIntents.stream().findFirst();
+    private Optional<Intent> findMatchingIntent(String normalizedMessage) {
+        return intentMatchingService.resolve(normalizedMessage);
     }
 
     @Transactional(readOnly = true)
@@ -104,7 +135,9 @@ public class ChatbotService {
         if (intentRepository.existsByName(intent.getName())) {
             throw new IllegalArgumentException("Intent with name " + intent.getName() + " already exists");
         }
-        return intentRepository.save(intent);
+        Intent saved = intentRepository.save(intent);
+        eventPublisher.publishEvent(new IntentsChangedEvent(saved.getId()));
+        return saved;
     }
 
     @Transactional
@@ -116,13 +149,17 @@ public class ChatbotService {
         existing.setTrigger(intent.getTrigger());
         existing.setResponse(intent.getResponse());
         existing.setActive(intent.isActive());
+        existing.setPriority(intent.getPriority());
         
-        return intentRepository.save(existing);
+        Intent saved = intentRepository.save(existing);
+        eventPublisher.publishEvent(new IntentsChangedEvent(saved.getId()));
+        return saved;
     }
 
     @Transactional
     public void deleteIntent(UUID id) {
         intentRepository.deleteById(id);
+        eventPublisher.publishEvent(new IntentsChangedEvent(id));
     }
 
     @Transactional(readOnly = true)
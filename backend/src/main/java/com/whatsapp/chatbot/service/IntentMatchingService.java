@@ -0,0 +1,128 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.client.PreparedMessage;
+import com.whatsapp.chatbot.client.WhatsAppClient;
+import com.whatsapp.chatbot.config.MatchingConfig;
+import com.whatsapp.chatbot.entity.Intent;
+import com.whatsapp.chatbot.event.IntentsChangedEvent;
+import com.whatsapp.chatbot.matching.IntentMatchResult;
+import com.whatsapp.chatbot.matching.IntentSnapshot;
+import com.whatsapp.chatbot.repository.IntentRepository;
+import com.whatsapp.chatbot.text.TextNormalizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IntentMatchingService {
+
+    private final IntentRepository intentRepository;
+    private final MatchingConfig matchingConfig;
+    private final IntentResolutionCache resolutionCache;
+    private final TextNormalizer textNormalizer;
+    private final WhatsAppClient whatsAppClient;
+
+    private final AtomicReference<IntentSnapshot> snapshot = new AtomicReference<>(IntentSnapshot.empty());
+    private final AtomicLong versions = new AtomicLong();
+
+    /**
+     * Load the active intents once the application is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * Rebuild in the background once an intent change has committed
+     */
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onIntentsChanged(IntentsChangedEvent event) {
+        log.debug("Intent {} changed, rebuilding snapshot", event.intentId());
+        reload();
+    }
+
+    /**
+     * Build a new snapshot from the active intents in the database and swap it in.
+     * A build that finishes after a newer one never replaces it.
+     */
+    public IntentSnapshot reload() {
+        long version = versions.incrementAndGet();
+        try {
+            List<Intent> intents = intentRepository.findByActiveTrue();
+            IntentSnapshot built = IntentSnapshot.build(version, intents, matchingConfig.getStrategy(),
+                    matchingConfig.getMaxEdits(), textNormalizer, whatsAppClient::prepareText);
+            IntentSnapshot current = snapshot.accumulateAndGet(built,
+                    (prev, next) -> next.getVersion() > prev.getVersion() ? next : prev);
+            if (current == built) {
+                resolutionCache.clear();
+                log.info("Published intent snapshot v{} with {} intents ({} matching)",
+                        version, built.size(), matchingConfig.getStrategy());
+            }
+            return current;
+        } catch (Exception e) {
+            log.error("Failed to rebuild intent snapshot v{}, keeping v{}: {}",
+                    version, snapshot.get().getVersion(), e.getMessage(), e);
+            return snapshot.get();
+        }
+    }
+
+    /**
+     * Current snapshot; never blocks on a rebuild
+     */
+    public IntentSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Resolve a message, already normalized with the shared {@link TextNormalizer}, to its best
+     * intent without touching the database; repeated phrases are answered from the resolution cache
+     */
+    public Optional<Intent> resolve(String normalizedMessage) {
+        IntentSnapshot current = snapshot.get();
+        Optional<IntentResolutionCache.Resolution> cached = resolutionCache.get(normalizedMessage, current.getVersion());
+        if (cached.isPresent()) {
+            UUID intentId = cached.get().intentId();
+            return intentId == null ? Optional.empty() : current.findById(intentId);
+        }
+
+        IntentMatchResult result = current.rank(normalizedMessage);
+        if (!result.runnerUps().isEmpty()) {
+            log.debug("Ambiguous intent match, ranked candidates: {}", result.ranked());
+        }
+        Optional<Intent> best = result.best();
+        resolutionCache.put(normalizedMessage, current.getVersion(), best.map(Intent::getId).orElse(null));
+        return best;
+    }
+
+    /**
+     * The intent's reply, serialized with the snapshot while it still reads {@code response}; a reply
+     * queued before its intent was edited or removed is serialized on the spot
+     */
+    public PreparedMessage replyFor(UUID intentId, String response) {
+        return snapshot.get().findReply(intentId)
+                .filter(reply -> reply.text().equals(response))
+                .orElseGet(() -> whatsAppClient.prepareText(response));
+    }
+
+    /**
+     * Normalize a raw message and rank its candidate intents against the current snapshot
+     */
+    public IntentMatchResult rank(String message) {
+        return snapshot.get().rank(textNormalizer.normalize(message));
+    }
+}
@@ -0,0 +1,67 @@
+package com.whatsapp.chatbot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.whatsapp.chatbot.config.MatchingConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Bounded, TTL-evicting cache of normalized message text to resolved intent id.
+ * Entries remember the snapshot version they were resolved against and are ignored
+ * once a newer snapshot is live, so a rebuild racing with a lookup cannot serve stale ids.
+ */
+@Slf4j
+@Component
+public class IntentResolutionCache {
+
+    /**
+     * Resolved intent id for one snapshot version; {@code intentId} is null when nothing matched
+     */
+    public record Resolution(long version, UUID intentId) {
+    }
+
+    private final MatchingConfig.Cache config;
+    private final Cache<String, Resolution> cache;
+
+    public IntentResolutionCache(MatchingConfig matchingConfig, MeterRegistry meterRegistry) {
+        this.config = matchingConfig.getCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxSize())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "intent.resolution");
+    }
+
+    public Optional<Resolution> get(String normalizedMessage, long version) {
+        if (!isCacheable(normalizedMessage)) {
+            return Optional.empty();
+        }
+        Resolution resolution = cache.getIfPresent(normalizedMessage);
+        return resolution != null && resolution.version() == version ? Optional.of(resolution) : Optional.empty();
+    }
+
+    public void put(String normalizedMessage, long version, UUID intentId) {
+        if (isCacheable(normalizedMessage)) {
+            cache.put(normalizedMessage, new Resolution(version, intentId));
+        }
+    }
+
+    /**
+     * Drop every entry; called whenever a new intent snapshot is published
+     */
+    public void clear() {
+        cache.invalidateAll();
+        log.debug("Cleared intent resolution cache");
+    }
+
+    private boolean isCacheable(String normalizedMessage) {
+        return config.isEnabled() && normalizedMessage.length() <= config.getMaxKeyLength();
+    }
+}
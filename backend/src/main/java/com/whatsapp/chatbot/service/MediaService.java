@@ -0,0 +1,325 @@
+package com.whatsapp.chatbot.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.whatsapp.chatbot.client.WhatsAppClient;
+import com.whatsapp.chatbot.concurrent.DirectBufferPool;
+import com.whatsapp.chatbot.config.MediaConfig;
+import com.whatsapp.chatbot.dto.MediaInfo;
+import com.whatsapp.chatbot.dto.MediaUpload;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.core5.http.ContentTooLongException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+/**
+ * Moves media between API callers, local disk and the Graph API media endpoints without holding a
+ * file in memory. An upload is spooled to disk while its SHA-256 is computed, then streamed to Graph;
+ * the media id is cached per content hash and type, so sending the same brochure again uploads nothing.
+ * Each transfer borrows one direct buffer from a bounded pool for its whole run.
+ */
+@Slf4j
+@Service
+public class MediaService {
+
+    private static final Pattern MEDIA_ID = Pattern.compile("[A-Za-z0-9_-]{1,128}");
+    private static final String PART_SUFFIX = ".part";
+
+    /**
+     * A downloaded media file on local disk, deleted by {@link #transferTo}
+     */
+    public record MediaFile(Path path, String mimeType, long size, String sha256) {
+    }
+
+    private final WhatsAppClient whatsAppClient;
+    private final MediaConfig config;
+    private final Path directory;
+    private final long maxFileSize;
+    private final DirectBufferPool buffers;
+    // Content hash and type to media id; null when caching is disabled
+    private final AsyncCache<String, String> mediaIds;
+    private final Counter uploadedBytes;
+    private final Counter downloadedBytes;
+
+    public MediaService(WhatsAppClient whatsAppClient, MediaConfig config, MeterRegistry meterRegistry) {
+        this.whatsAppClient = whatsAppClient;
+        this.config = config;
+        this.directory = Path.of(config.getDirectory());
+        this.maxFileSize = config.getMaxFileSize().toBytes();
+        this.buffers = new DirectBufferPool((int) config.getBufferSize().toBytes(), config.getBuffers());
+        this.mediaIds = config.getCache().isEnabled()
+                ? CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                        .maximumSize(config.getCache().getMaxSize())
+                        .expireAfterWrite(config.getCache().getTtl())
+                        .recordStats()
+                        .buildAsync(), "media.ids")
+                : null;
+        this.uploadedBytes = Counter.builder("whatsapp.media.bytes")
+                .description("Media bytes transferred to and from the Graph API")
+                .baseUnit("bytes")
+                .tag("direction", "upload")
+                .register(meterRegistry);
+        this.downloadedBytes = Counter.builder("whatsapp.media.bytes")
+                .description("Media bytes transferred to and from the Graph API")
+                .baseUnit("bytes")
+                .tag("direction", "download")
+                .register(meterRegistry);
+        Gauge.builder("whatsapp.media.buffers.in.use", buffers, DirectBufferPool::inUse)
+                .description("Direct buffers lent to running media transfers")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Spool files are only meaningful to the transfer that wrote them
+     */
+    @PostConstruct
+    void deleteLeftoverSpoolFiles() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, "*" + PART_SUFFIX)) {
+            for (Path file : leftovers) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Spool {@code in} to disk and upload it, unless the same content of the same type was uploaded
+     * before, in which case its media id is returned without uploading. Concurrent uploads of the same
+     * content share one Graph upload.
+     *
+     * @throws MediaTooLargeException if the content exceeds chatbot.media.max-file-size
+     * @throws TransfersBusyException if no transfer buffer became free in time
+     */
+    public MediaUpload upload(InputStream in, String mimeType, String fileName) throws IOException {
+        Files.createDirectories(directory);
+        Path file = Files.createTempFile(directory, "upload-", PART_SUFFIX);
+        ByteBuffer buffer = acquireBuffer();
+        boolean handedOff = false;
+        try {
+            Spooled spooled = spool(in, file, buffer);
+            if (mediaIds == null) {
+                handedOff = true;
+                String mediaId = await(startUpload(file, mimeType, fileName, spooled.size(), buffer), true);
+                return uploaded(mediaId, mimeType, spooled, false);
+            }
+            boolean[] started = {false};
+            CompletableFuture<String> mediaId = mediaIds.get(spooled.sha256() + ' ' + mimeType, (key, executor) -> {
+                started[0] = true;
+                return startUpload(file, mimeType, fileName, spooled.size(), buffer);
+            });
+            handedOff = started[0];
+            if (!handedOff) {
+                log.debug("Reusing media id for {} ({}), SHA-256 {}", fileName, mimeType, spooled.sha256());
+            }
+            // A caller only joining someone else's upload must not cancel it on timeout
+            return uploaded(await(handedOff ? mediaId : mediaId.copy(), handedOff), mimeType, spooled, !handedOff);
+        } finally {
+            if (!handedOff) {
+                buffers.release(buffer);
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Download a media id, e.g. one received in a webhook, to a local file checked against its SHA-256
+     *
+     * @throws IllegalArgumentException if {@code mediaId} is not a Graph id
+     * @throws MediaTooLargeException   if the media exceeds chatbot.media.max-file-size
+     * @throws TransfersBusyException   if no transfer buffer became free in time
+     */
+    public MediaFile download(String mediaId) throws IOException {
+        if (!MEDIA_ID.matcher(mediaId).matches()) {
+            throw new IllegalArgumentException("Invalid media id: " + mediaId);
+        }
+        MediaInfo info = await(whatsAppClient.getMediaAsync(mediaId), true);
+        if (info.getFileSize() > maxFileSize) {
+            throw new MediaTooLargeException(maxFileSize);
+        }
+        Files.createDirectories(directory);
+        Path file = Files.createTempFile(directory, "download-", PART_SUFFIX);
+        try {
+            ByteBuffer buffer = acquireBuffer();
+            CompletableFuture<Long> download = whatsAppClient.downloadMediaAsync(info, file, maxFileSize, buffer);
+            download.whenComplete((size, failure) -> returnBuffer(buffer, failure));
+            long size = await(download, true);
+            downloadedBytes.increment(size);
+            return new MediaFile(file, info.getMimeType(), size, info.getSha256());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Copy a downloaded file to {@code out} and delete it. The kernel moves the bytes from the page
+     * cache in small direct chunks; nothing is read onto the heap.
+     */
+    public void transferTo(MediaFile media, OutputStream out) throws IOException {
+        try (FileChannel source = FileChannel.open(media.path(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            for (long position = 0, size = source.size(); position < size; ) {
+                position += source.transferTo(position, size - position, target);
+            }
+        } finally {
+            Files.deleteIfExists(media.path());
+        }
+    }
+
+    private CompletableFuture<String> startUpload(Path file, String mimeType, String fileName, long size,
+                                                  ByteBuffer buffer) {
+        CompletableFuture<String> upload = whatsAppClient.uploadMediaAsync(file, mimeType, fileName, buffer);
+        upload.whenComplete((mediaId, failure) -> {
+            returnBuffer(buffer, failure);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to delete media spool file {}: {}", file, e.getMessage());
+            }
+            if (failure == null) {
+                uploadedBytes.increment(size);
+                log.info("Uploaded {} ({}, {} bytes) as media {}", fileName, mimeType, size, mediaId);
+            }
+        });
+        return upload;
+    }
+
+    private Spooled spool(InputStream in, Path file, ByteBuffer buffer) throws IOException {
+        MessageDigest digest = sha256();
+        long size = 0;
+        try (ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel target = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            boolean eof = false;
+            while (!eof) {
+                eof = source.read(buffer) < 0;
+                if (!buffer.hasRemaining() || (eof && buffer.position() > 0)) {
+                    buffer.flip();
+                    size += buffer.remaining();
+                    if (size > maxFileSize) {
+                        throw new MediaTooLargeException(maxFileSize);
+                    }
+                    digest.update(buffer);
+                    buffer.rewind();
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+        }
+        return new Spooled(size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private record Spooled(long size, String sha256) {
+    }
+
+    private ByteBuffer acquireBuffer() throws IOException {
+        ByteBuffer buffer;
+        try {
+            buffer = buffers.acquire(config.getBufferWait());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a media transfer buffer");
+        }
+        if (buffer == null) {
+            throw new TransfersBusyException();
+        }
+        return buffer;
+    }
+
+    // A cancelled exchange may still be winding down on the I/O reactor, so its buffer is not reused
+    private void returnBuffer(ByteBuffer buffer, Throwable failure) {
+        if (failure instanceof CancellationException) {
+            buffers.discard(buffer);
+        } else {
+            buffers.release(buffer);
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future, boolean cancelOnTimeout) throws IOException {
+        try {
+            return future.get(config.getTransferTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (cancelOnTimeout) {
+                future.cancel(true);
+            }
+            throw new IOException("Media transfer did not finish within " + config.getTransferTimeout(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (cancelOnTimeout) {
+                future.cancel(true);
+            }
+            throw new InterruptedIOException("Interrupted waiting for a media transfer");
+        } catch (ExecutionException e) {
+            // A download without a Content-Length only finds out it is too large part way through
+            for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+                if (t instanceof ContentTooLongException) {
+                    throw new MediaTooLargeException(maxFileSize);
+                }
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new WhatsAppClient.WhatsAppClientException("Media transfer failed", e.getCause());
+        }
+    }
+
+    private MediaUpload uploaded(String mediaId, String mimeType, Spooled spooled, boolean cached) {
+        return MediaUpload.builder()
+                .mediaId(mediaId)
+                .mimeType(mimeType)
+                .size(spooled.size())
+                .sha256(spooled.sha256())
+                .cached(cached)
+                .build();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static class MediaTooLargeException extends IOException {
+        public MediaTooLargeException(long maxFileSize) {
+            super("Media exceeds " + maxFileSize + " bytes");
+        }
+    }
+
+    public static class TransfersBusyException extends IOException {
+        public TransfersBusyException() {
+            super("All media transfer buffers are in use");
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.config.DedupConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Remembers recently seen WhatsApp message ids so redelivered webhooks are processed once.
+ * <p>
+ * Ids are stored as 64-bit fingerprints in a ring of fixed-size open-addressing tables, one per
+ * time slice of the window. The oldest table is cleared and reused when a slice ends, so memory
+ * stays within the configured budget. A fingerprint collision between two live ids is
+ * vanishingly unlikely (about n^2 / 2^64) and is the only way a new message could be dropped.
+ */
+@Slf4j
+@Component
+public class MessageDeduplicator {
+
+    private static final double MAX_LOAD = 0.5;
+
+    private final boolean enabled;
+    private final long sliceNanos;
+    private final Generation[] generations;
+    // A lock rather than a monitor, so contended virtual threads unmount instead of pinning their carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private int current;
+    private long currentEndsAt;
+
+    private final Counter checked;
+    private final Counter duplicates;
+    private final Counter truncated;
+
+    public MessageDeduplicator(DedupConfig config, MeterRegistry meterRegistry) {
+        this.enabled = config.isEnabled();
+        int count = Math.max(2, config.getGenerations());
+        this.sliceNanos = config.getWindow().toNanos() / (count - 1);
+        int slotsPerGeneration = Integer.highestOneBit(
+                (int) Math.min(1 << 30, Math.max(16, config.getMaxMemoryBytes() / Long.BYTES / count)));
+        this.generations = new Generation[count];
+        for (int i = 0; i < count; i++) {
+            generations[i] = new Generation(slotsPerGeneration);
+        }
+        this.currentEndsAt = System.nanoTime() + sliceNanos;
+
+        this.checked = Counter.builder("webhook.dedup.checked")
+                .description("Inbound message ids checked for redelivery")
+                .register(meterRegistry);
+        this.duplicates = Counter.builder("webhook.dedup.duplicates")
+                .description("Inbound messages dropped as redeliveries")
+                .register(meterRegistry);
+        this.truncated = Counter.builder("webhook.dedup.rotations.early")
+                .description("Generations retired before their time because they were full")
+                .register(meterRegistry);
+        Gauge.builder("webhook.dedup.entries", this, MessageDeduplicator::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record a message id; returns true if it was already seen within the window.
+     * Null or empty ids are never treated as duplicates.
+     */
+    public boolean isDuplicate(String messageId) {
+        if (!enabled || messageId == null || messageId.isEmpty()) {
+            return false;
+        }
+        long fingerprint = fingerprint(messageId);
+        checked.increment();
+        lock.lock();
+        try {
+            rotateIfDue(System.nanoTime());
+            for (Generation generation : generations) {
+                if (generation.contains(fingerprint)) {
+                    duplicates.increment();
+                    return true;
+                }
+            }
+            Generation target = generations[current];
+            if (target.isFull()) {
+                truncated.increment();
+                rotate(System.nanoTime());
+                target = generations[current];
+            }
+            target.add(fingerprint);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forget a message id, e.g. when processing failed and the redelivery should go through
+     */
+    public void forget(String messageId) {
+        if (!enabled || messageId == null || messageId.isEmpty()) {
+            return;
+        }
+        long fingerprint = fingerprint(messageId);
+        lock.lock();
+        try {
+            for (Generation generation : generations) {
+                generation.remove(fingerprint);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long size() {
+        lock.lock();
+        try {
+            long size = 0;
+            for (Generation generation : generations) {
+                size += generation.size;
+            }
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rotateIfDue(long now) {
+        if (now - currentEndsAt < 0) {
+            return;
+        }
+        // Every slice that ended while idle retires one generation; after a full window all are stale
+        long elapsed = (now - currentEndsAt) / sliceNanos + 1;
+        for (long i = 0; i < Math.min(elapsed, generations.length); i++) {
+            rotate(now);
+        }
+    }
+
+    private void rotate(long now) {
+        current = (current + 1) % generations.length;
+        generations[current].clear();
+        currentEndsAt = now + sliceNanos;
+    }
+
+    // FNV-1a over the UTF-16 chars followed by a SplitMix64 finalizer; 0 marks an empty slot
+    static long fingerprint(String id) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            h ^= id.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 30;
+        h *= 0xbf58476d1ce4e5b9L;
+        h ^= h >>> 27;
+        h *= 0x94d049bb133111ebL;
+        h ^= h >>> 31;
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * Linear-probing set of non-zero longs
+     */
+    private static final class Generation {
+        private final long[] slots;
+        private final int mask;
+        private final int limit;
+        private int size;
+
+        Generation(int capacity) {
+            this.slots = new long[capacity];
+            this.mask = capacity - 1;
+            this.limit = (int) (capacity * MAX_LOAD);
+        }
+
+        boolean contains(long key) {
+            for (int i = index(key); ; i = (i + 1) & mask) {
+                long slot = slots[i];
+                if (slot == key) {
+                    return true;
+                }
+                if (slot == 0) {
+                    return false;
+                }
+            }
+        }
+
+        void add(long key) {
+            int i = index(key);
+            while (slots[i] != 0) {
+                if (slots[i] == key) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            slots[i] = key;
+            size++;
+        }
+
+        void remove(long key) {
+            int i = index(key);
+            while (slots[i] != key) {
+                if (slots[i] == 0) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            // Backward-shift deletion keeps probe sequences intact without tombstones
+            int hole = i;
+            for (int j = (hole + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+                int home = index(slots[j]);
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    slots[hole] = slots[j];
+                    hole = j;
+                }
+            }
+            slots[hole] = 0;
+            size--;
+        }
+
+        boolean isFull() {
+            return size >= limit;
+        }
+
+        void clear() {
+            if (size > 0) {
+                Arrays.fill(slots, 0L);
+                size = 0;
+            }
+        }
+
+        private int index(long key) {
+            return (int) (key ^ (key >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.client.GraphApiErrors;
+import com.whatsapp.chatbot.client.PreparedMessage;
+import com.whatsapp.chatbot.client.WhatsAppClient;
+import com.whatsapp.chatbot.concurrent.TokenBucket;
+import com.whatsapp.chatbot.config.OutboundConfig;
+import com.whatsapp.chatbot.dto.WhatsAppResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Paces outbound messages to the Graph API's limits: a token bucket per sending phone number id for its
+ * throughput tier and one per recipient for the pair rate limit. Recipients waiting on the same number
+ * are served round robin, so one busy conversation cannot starve the others. When the Graph API throttles
+ * a number its rate is halved and then regained gradually; throttled messages go back to the head of
+ * their recipient's queue. Each recipient has at most one send awaiting the Graph API, so its messages
+ * arrive in the order they were queued.
+ */
+@Slf4j
+@Component
+public class OutboundScheduler {
+
+    private static final long IDLE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // Sends in flight when a number is throttled fail together; they count as one throttle
+    private static final long THROTTLE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final WhatsAppClient whatsAppClient;
+    private final OutboundConfig config;
+    private final MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<String, Sender> senders = new HashMap<>();
+    private int queued;
+    private volatile boolean running = true;
+    private final Thread dispatcher;
+
+    private final Timer queueWait;
+    private final Counter senderThrottled;
+    private final Counter recipientThrottled;
+    private final Counter rejected;
+
+    public OutboundScheduler(WhatsAppClient whatsAppClient, OutboundConfig config, MeterRegistry meterRegistry) {
+        this.whatsAppClient = whatsAppClient;
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        this.queueWait = Timer.builder("whatsapp.outbound.wait")
+                .description("Time an outbound message waited for its rate limits")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.senderThrottled = Counter.builder("whatsapp.outbound.throttled")
+                .description("Sends the Graph API refused as over a rate limit")
+                .tag("limit", "phone_number")
+                .register(meterRegistry);
+        this.recipientThrottled = Counter.builder("whatsapp.outbound.throttled")
+                .description("Sends the Graph API refused as over a rate limit")
+                .tag("limit", "recipient")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("whatsapp.outbound.rejected")
+                .description("Outbound messages refused because the queue was full")
+                .register(meterRegistry);
+        this.dispatcher = new CustomizableThreadFactory("outbound-scheduler-").newThread(this::dispatchLoop);
+        dispatcher.setDaemon(true);
+        if (config.isEnabled()) {
+            dispatcher.start();
+        }
+    }
+
+    public CompletableFuture<WhatsAppResponse> submit(String to, String message) {
+        return submit(to, whatsAppClient.prepareText(message));
+    }
+
+    /**
+     * Queue a message; the future completes once the Graph API accepted it. Cancelling the
+     * future drops the message if it has not been sent yet.
+     */
+    public CompletableFuture<WhatsAppResponse> submit(String to, PreparedMessage message) {
+        if (!config.isEnabled()) {
+            return whatsAppClient.sendMessageAsync(to, message);
+        }
+        Outgoing outgoing = new Outgoing(whatsAppClient.phoneNumberId(), to, message, System.nanoTime());
+        lock.lock();
+        try {
+            if (!running) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException("Outbound scheduler stopped"));
+            }
+            if (queued >= config.getQueueCapacity()) {
+                rejected.increment();
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                        "Outbound queue is full (" + queued + " messages)"));
+            }
+            sender(outgoing.phoneNumberId).enqueue(outgoing, false);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        return outgoing.result;
+    }
+
+    /**
+     * {@link #submit} for callers that need the outcome; gives up on the message after max-wait
+     */
+    public WhatsAppResponse send(String to, PreparedMessage message) {
+        CompletableFuture<WhatsAppResponse> result = submit(to, message);
+        try {
+            return result.get(config.getMaxWait().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(false);
+            throw new WhatsAppClient.WhatsAppClientException("Timed out waiting to send message", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(false);
+            throw new WhatsAppClient.WhatsAppClientException("Interrupted while sending message", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new WhatsAppClient.WhatsAppClientException("Failed to send message", e.getCause());
+        }
+    }
+
+    private void dispatchLoop() {
+        List<Outgoing> due = new ArrayList<>();
+        lock.lock();
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                long wait = IDLE_WAIT_NANOS;
+                for (Sender sender : senders.values()) {
+                    wait = Math.min(wait, sender.collectDue(now, due));
+                }
+                if (due.isEmpty()) {
+                    changed.awaitNanos(wait);
+                    continue;
+                }
+                lock.unlock();
+                try {
+                    for (Outgoing outgoing : due) {
+                        try {
+                            dispatch(outgoing);
+                        } catch (RuntimeException e) {
+                            // One message that cannot be sent must not stop the dispatcher or hold its recipient's queue
+                            log.warn("Failed to send outbound message to {}: {}", outgoing.to, e.getMessage());
+                            release(outgoing);
+                            outgoing.result.completeExceptionally(e);
+                        }
+                    }
+                } finally {
+                    due.clear();
+                    lock.lock();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch(Outgoing outgoing) {
+        queueWait.record(System.nanoTime() - outgoing.enqueuedAt, TimeUnit.NANOSECONDS);
+        CompletableFuture<WhatsAppResponse> sending = whatsAppClient.sendPacedMessageAsync(outgoing.to, outgoing.message);
+        outgoing.result.whenComplete((response, failure) -> {
+            if (outgoing.result.isCancelled()) {
+                sending.cancel(true);
+            }
+        });
+        sending.whenComplete((response, failure) -> {
+            if (failure != null && requeueThrottled(outgoing, failure)) {
+                return;
+            }
+            release(outgoing);
+            if (failure == null) {
+                outgoing.result.complete(response);
+            } else {
+                outgoing.result.completeExceptionally(failure);
+            }
+        });
+    }
+
+    /**
+     * Put a throttled message back at the head of its recipient's queue, unless it has been retried enough
+     *
+     * @return false if the failure is final
+     */
+    private boolean requeueThrottled(Outgoing outgoing, Throwable failure) {
+        boolean numberLimited = GraphApiErrors.isThroughputLimited(failure);
+        boolean recipientLimited = !numberLimited && GraphApiErrors.isPairRateLimited(failure);
+        if (!numberLimited && !recipientLimited) {
+            return false;
+        }
+        (numberLimited ? senderThrottled : recipientThrottled).increment();
+        lock.lock();
+        try {
+            Sender sender = sender(outgoing.phoneNumberId);
+            long now = System.nanoTime();
+            if (numberLimited) {
+                sender.throttle(now);
+            } else {
+                sender.recipient(outgoing.to, now).bucket.drain(now);
+            }
+            if (running && outgoing.throttles++ < config.getMaxThrottleRetries() && !outgoing.result.isDone()) {
+                sender.enqueue(outgoing, true);
+                changed.signal();
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The send to this recipient was answered; its next message may go
+    private void release(Outgoing outgoing) {
+        lock.lock();
+        try {
+            Sender sender = senders.get(outgoing.phoneNumberId);
+            Recipient recipient = sender == null ? null : sender.recipients.get(outgoing.to);
+            if (recipient != null && recipient.sending) {
+                sender.release(recipient);
+                changed.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Sender sender(String phoneNumberId) {
+        return senders.computeIfAbsent(phoneNumberId, id -> new Sender(id, System.nanoTime()));
+    }
+
+    /**
+     * Stop sending; messages still queued fail
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        List<Outgoing> dropped = new ArrayList<>();
+        lock.lock();
+        try {
+            running = false;
+            changed.signalAll();
+            for (Sender sender : senders.values()) {
+                sender.recipients.values().forEach(r -> dropped.addAll(r.queue));
+                sender.recipients.clear();
+                sender.ready.clear();
+                sender.depth = 0;
+            }
+            queued = 0;
+        } finally {
+            lock.unlock();
+        }
+        dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        if (!dropped.isEmpty()) {
+            log.warn("Outbound scheduler stopped with {} unsent messages", dropped.size());
+        }
+        dropped.forEach(o -> o.result.completeExceptionally(new RejectedExecutionException("Outbound scheduler stopped")));
+    }
+
+    /**
+     * Queues and limits for one sending phone number id; guarded by the scheduler lock
+     */
+    private final class Sender {
+        private final TokenBucket bucket;
+        private final double maxRate;
+        private final Map<String, Recipient> recipients = new HashMap<>();
+        // Recipients with queued messages and no send in flight, served round robin
+        private final ArrayDeque<Recipient> ready = new ArrayDeque<>();
+        private volatile int depth;
+        private volatile double rate;
+        private long throttledAt;
+        private long reducedAt;
+        private long recoveredAt;
+        private long sweptAt;
+
+        Sender(String phoneNumberId, long now) {
+            this.maxRate = config.getMessagesPerSecond();
+            this.bucket = new TokenBucket(maxRate, config.getBurst(), now);
+            this.rate = maxRate;
+            this.throttledAt = now - THROTTLE_COOLDOWN_NANOS;
+            this.reducedAt = throttledAt;
+            this.recoveredAt = now;
+            this.sweptAt = now;
+            Gauge.builder("whatsapp.outbound.queue.depth", this, s -> s.depth)
+                    .description("Outbound messages waiting for a rate limit token")
+                    .tag("phone_number_id", phoneNumberId)
+                    .register(meterRegistry);
+            Gauge.builder("whatsapp.outbound.rate", this, s -> s.rate)
+                    .description("Current send rate in messages per second, lowered after throttling")
+                    .tag("phone_number_id", phoneNumberId)
+                    .register(meterRegistry);
+        }
+
+        Recipient recipient(String to, long now) {
+            return recipients.computeIfAbsent(to, key -> new Recipient(new TokenBucket(
+                    1.0 / (config.getRecipientInterval().toNanos() / 1e9), config.getRecipientBurst(), now)));
+        }
+
+        /**
+         * Queue a new message, or with {@code retry} put back the recipient's message in flight
+         * ahead of those that waited behind it
+         */
+        void enqueue(Outgoing outgoing, boolean retry) {
+            Recipient recipient = recipient(outgoing.to, System.nanoTime());
+            boolean listed = !recipient.sending && !recipient.queue.isEmpty();
+            if (retry) {
+                recipient.sending = false;
+                recipient.queue.addFirst(outgoing);
+            } else {
+                recipient.queue.addLast(outgoing);
+            }
+            if (!listed && !recipient.sending) {
+                ready.addLast(recipient);
+            }
+            depth++;
+            queued++;
+        }
+
+        /**
+         * Move every message that may be sent now into {@code due}; returns nanoseconds until the next
+         * one might be
+         */
+        long collectDue(long now, List<Outgoing> due) {
+            recover(now);
+            long wait = Long.MAX_VALUE;
+            int skipped = 0;
+            while (skipped < ready.size()) {
+                if (!bucket.hasToken(now)) {
+                    return Math.min(wait, bucket.nanosUntilToken(now));
+                }
+                Recipient recipient = ready.pollFirst();
+                Outgoing next = recipient.queue.peekFirst();
+                if (next.result.isDone()) {
+                    // Cancelled by its caller while queued
+                    take(recipient);
+                    skipped = 0;
+                } else if (recipient.bucket.tryTake(now)) {
+                    bucket.tryTake(now);
+                    recipient.sending = true;
+                    due.add(take(recipient));
+                    skipped = 0;
+                } else {
+                    wait = Math.min(wait, recipient.bucket.nanosUntilToken(now));
+                    ready.addLast(recipient);
+                    skipped++;
+                }
+            }
+            if (now - sweptAt > SWEEP_INTERVAL_NANOS) {
+                // An idle recipient with a full bucket is no different from one never seen
+                recipients.values().removeIf(r -> r.queue.isEmpty() && !r.sending && r.bucket.isFull(now));
+                sweptAt = now;
+            }
+            return wait;
+        }
+
+        private Outgoing take(Recipient recipient) {
+            Outgoing outgoing = recipient.queue.pollFirst();
+            if (!recipient.sending && !recipient.queue.isEmpty()) {
+                ready.addLast(recipient);
+            }
+            depth--;
+            queued--;
+            return outgoing;
+        }
+
+        void release(Recipient recipient) {
+            recipient.sending = false;
+            if (!recipient.queue.isEmpty()) {
+                ready.addLast(recipient);
+            }
+        }
+
+        void throttle(long now) {
+            if (now - reducedAt > THROTTLE_COOLDOWN_NANOS) {
+                rate = Math.max(config.getMinMessagesPerSecond(), bucket.rate() / 2);
+                bucket.setRate(rate, now);
+                reducedAt = now;
+                log.warn("Graph API throttled outbound messages; sending at {} messages/s", String.format("%.1f", rate));
+            }
+            bucket.drain(now);
+            throttledAt = now;
+        }
+
+        // Additive increase after a throttle-free cooldown
+        private void recover(long now) {
+            if (bucket.rate() >= maxRate) {
+                return;
+            }
+            long since = now - Math.max(recoveredAt, throttledAt + THROTTLE_COOLDOWN_NANOS);
+            if (since > 0) {
+                rate = Math.min(maxRate, bucket.rate() + maxRate * config.getRecoveryPerSecond() * since / 1e9);
+                bucket.setRate(rate, now);
+                recoveredAt = now;
+            }
+        }
+    }
+
+    private static final class Recipient {
+        final TokenBucket bucket;
+        final ArrayDeque<Outgoing> queue = new ArrayDeque<>();
+        // A send is awaiting the Graph API; the rest of the queue waits for its answer
+        boolean sending;
+
+        Recipient(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    private static final class Outgoing {
+        final String phoneNumberId;
+        final String to;
+        final PreparedMessage message;
+        final long enqueuedAt;
+        final CompletableFuture<WhatsAppResponse> result = new CompletableFuture<>();
+        int throttles;
+
+        Outgoing(String phoneNumberId, String to, PreparedMessage message, long enqueuedAt) {
+            this.phoneNumberId = phoneNumberId;
+            this.to = to;
+            this.message = message;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.whatsapp.chatbot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.whatsapp.chatbot.client.GraphApiErrors;
+import com.whatsapp.chatbot.client.PreparedMessage;
+import com.whatsapp.chatbot.client.WhatsAppClient;
+import com.whatsapp.chatbot.config.OutboxConfig;
+import com.whatsapp.chatbot.entity.OutboxMessage;
+import com.whatsapp.chatbot.repository.OutboxMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sends replies from the outbox table. One thread claims due messages in batches with
+ * {@code FOR UPDATE SKIP LOCKED}, so any number of instances can drain the table without claiming the
+ * same message, and hands them to {@link OutboundScheduler}. The same thread writes outcomes back, every
+ * send completed since its last round in one statement, so no database connection is held while the
+ * Graph API answers. A recipient's next message is claimed only once the one before it is sent or has
+ * failed for good, so replies keep their order across retries and instances. Delivery is at least once: a
+ * message whose claim lapses because its instance died mid-send is sent again.
+ */
+@Slf4j
+@Service
+public class OutboxDispatcher {
+
+    private static final int PURGE_BATCH = 10_000;
+
+    private final OutboxMessageRepository repository;
+    private final OutboundScheduler outboundScheduler;
+    private final WhatsAppClient whatsAppClient;
+    private final IntentMatchingService intentMatchingService;
+    private final OutboxConfig config;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition signalled = lock.newCondition();
+    // New messages were written, or sends in flight drained, since the last round
+    private boolean pending;
+    private final Queue<Outcome> outcomes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Free-text replies are in practice the fallback reply, so their serialized form is reused
+    private final Cache<String, PreparedMessage> textReplies = Caffeine.newBuilder()
+            .maximumSize(100)
+            .build();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+    private long lastPurge = System.nanoTime();
+
+    private final Timer claimTime;
+    private final Timer delay;
+    private final Counter sentMessages;
+    private final Counter retriedMessages;
+    private final Counter failedMessages;
+
+    public OutboxDispatcher(OutboxMessageRepository repository, OutboundScheduler outboundScheduler,
+                            WhatsAppClient whatsAppClient, IntentMatchingService intentMatchingService,
+                            OutboxConfig config, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.outboundScheduler = outboundScheduler;
+        this.whatsAppClient = whatsAppClient;
+        this.intentMatchingService = intentMatchingService;
+        this.config = config;
+        this.claimTime = Timer.builder("whatsapp.outbox.claim")
+                .description("Time to claim one batch of due outbox messages")
+                .register(meterRegistry);
+        this.delay = Timer.builder("whatsapp.outbox.delay")
+                .description("Time from writing a reply to the outbox until the Graph API accepted it")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.sentMessages = outcomeCounter(meterRegistry, "sent");
+        this.retriedMessages = outcomeCounter(meterRegistry, "retried");
+        this.failedMessages = outcomeCounter(meterRegistry, "failed");
+        Gauge.builder("whatsapp.outbox.in.flight", inFlight, AtomicInteger::get)
+                .description("Claimed outbox messages not yet answered by the Graph API")
+                .register(meterRegistry);
+        this.dispatcher = new CustomizableThreadFactory("outbox-dispatcher-").newThread(this::dispatchLoop);
+        dispatcher.setDaemon(true);
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("whatsapp.outbox.messages")
+                .description("Outbox messages by outcome of a send attempt")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Started once the schema is in place; messages left by a previous run are picked up from here
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        dispatcher.start();
+    }
+
+    /**
+     * New messages were committed to the outbox; claim them now instead of at the next poll
+     */
+    public void wakeUp() {
+        lock.lock();
+        try {
+            pending = true;
+            signalled.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            boolean more = false;
+            try {
+                more = dispatchRound();
+            } catch (RuntimeException e) {
+                log.warn("Outbox round failed, retrying after {}: {}", config.getPollInterval(), e.getMessage());
+            }
+            if (!more) {
+                awaitSignal();
+            }
+        }
+    }
+
+    // True if a full batch was claimed, so more may be due right away
+    private boolean dispatchRound() {
+        recordOutcomes();
+        purgeIfDue();
+        int capacity = Math.min(config.getBatchSize(), config.getMaxInFlight() - inFlight.get());
+        if (capacity <= 0 || !running) {
+            // Woken once half the sends in flight have completed
+            return false;
+        }
+        Instant now = Instant.now();
+        long started = System.nanoTime();
+        // At most one message per recipient, so their order within the batch does not matter
+        List<OutboxMessage> batch = repository.claimDue(now, now.plus(config.getLease()), capacity);
+        claimTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        batch.forEach(this::dispatch);
+        return batch.size() == capacity;
+    }
+
+    private void dispatch(OutboxMessage message) {
+        inFlight.incrementAndGet();
+        outboundScheduler.submit(message.getRecipient(), prepare(message)).whenComplete((response, failure) -> {
+            outcomes.add(new Outcome(message, failure));
+            // The recipient's next message is claimable only once this outcome is written, so the next round
+            // should not wait for the poll; outcomes arriving during a round are written together by the next.
+            // A dispatcher stalled on max-in-flight is woken only once half of it has drained.
+            if (inFlight.decrementAndGet() <= config.getMaxInFlight() / 2) {
+                wakeUp();
+            }
+        });
+    }
+
+    // Intent replies come serialized with the intent snapshot; only free text is serialized here
+    private PreparedMessage prepare(OutboxMessage message) {
+        if (message.getIntentId() != null) {
+            return intentMatchingService.replyFor(message.getIntentId(), message.getBody());
+        }
+        return textReplies.get(message.getBody(), whatsAppClient::prepareText);
+    }
+
+    private void awaitSignal() {
+        lock.lock();
+        try {
+            long nanos = config.getPollInterval().toNanos();
+            while (!pending && running && nanos > 0) {
+                nanos = signalled.awaitNanos(nanos);
+            }
+            pending = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write back the outcome of every send completed since the last call: all successes in one statement,
+     * failures one by one since each gets its own next attempt. Outcomes that could not be written are
+     * kept for the next call.
+     */
+    private void recordOutcomes() {
+        List<Outcome> remaining = new ArrayList<>();
+        for (Outcome outcome = outcomes.poll(); outcome != null; outcome = outcomes.poll()) {
+            remaining.add(outcome);
+        }
+        if (remaining.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        try {
+            for (Iterator<Outcome> it = remaining.iterator(); it.hasNext(); ) {
+                Outcome outcome = it.next();
+                if (outcome.failure() != null) {
+                    recordFailure(outcome.message(), outcome.failure(), now);
+                    it.remove();
+                }
+            }
+            if (!remaining.isEmpty()) {
+                repository.markSent(remaining.stream().map(o -> o.message().getId()).toList(), now);
+            }
+        } catch (RuntimeException e) {
+            outcomes.addAll(remaining);
+            throw e;
+        }
+        for (Outcome outcome : remaining) {
+            sentMessages.increment();
+            delay.record(Duration.between(outcome.message().getCreatedAt(), now));
+        }
+    }
+
+    private void recordFailure(OutboxMessage message, Throwable failure, Instant now) {
+        String error = GraphApiErrors.messageOf(failure);
+        // The Graph API refused this message itself, e.g. an invalid recipient; another attempt gets the same answer
+        boolean refused = GraphApiErrors.statusOf(failure) >= 400 && !GraphApiErrors.isRetryable(failure);
+        if (refused || message.getAttempts() >= config.getMaxAttempts()) {
+            repository.markFailed(message.getId(), OutboxMessage.Status.FAILED, message.getNextAttemptAt(), error);
+            failedMessages.increment();
+            log.warn("Giving up on reply to {} after {} attempts: {}", message.getRecipient(), message.getAttempts(), error);
+            return;
+        }
+        repository.markFailed(message.getId(), OutboxMessage.Status.PENDING, now.plus(backoff(message.getAttempts())), error);
+        retriedMessages.increment();
+        log.info("Reply to {} failed on attempt {}, retrying: {}", message.getRecipient(), message.getAttempts(), error);
+    }
+
+    // initial-backoff after the first attempt, doubling up to max-backoff
+    private Duration backoff(int attempts) {
+        Duration backoff = config.getInitialBackoff().multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(config.getMaxBackoff()) > 0 ? config.getMaxBackoff() : backoff;
+    }
+
+    private void purgeIfDue() {
+        if (System.nanoTime() - lastPurge < config.getPurgeInterval().toNanos()) {
+            return;
+        }
+        lastPurge = System.nanoTime();
+        Instant cutoff = Instant.now().minus(config.getRetention());
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = repository.deleteFinishedBefore(cutoff, PURGE_BATCH);
+            purged += deleted;
+        } while (deleted == PURGE_BATCH && running);
+        if (purged > 0) {
+            log.info("Purged {} finished outbox messages older than {}", purged, config.getRetention());
+        }
+    }
+
+    /**
+     * Stop claiming, then give sends in flight until stop-timeout to complete so they are not sent again
+     * after a restart; the rest are sent again once their lease runs out
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        wakeUp();
+        dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        long deadline = System.nanoTime() + config.getStopTimeout().toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        try {
+            recordOutcomes();
+        } catch (RuntimeException e) {
+            log.warn("Failed to record outbox outcomes on shutdown: {}", e.getMessage());
+        }
+        if (inFlight.get() > 0) {
+            log.warn("Outbox dispatcher stopped with {} replies in flight; they are sent again after {}",
+                    inFlight.get(), config.getLease());
+        }
+    }
+
+    private record Outcome(OutboxMessage message, Throwable failure) {
+    }
+}
@@ -0,0 +1,92 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.concurrent.CoDelDetector;
+import com.whatsapp.chatbot.concurrent.GradientLimiter;
+import com.whatsapp.chatbot.config.IngestionConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides whether to accept another webhook request. Two signals are combined:
+ * an adaptive limit on requests in flight, which tracks end-to-end latency when webhooks are handled
+ * inline, and CoDel-style detection of a standing lane queue, which tracks the Graph API and database
+ * when webhooks are queued. Either one saturating sheds the request.
+ */
+@Component
+public class WebhookAdmission {
+
+    public enum Decision {
+        ACCEPTED,
+        LIMIT_EXCEEDED,
+        QUEUE_OVERLOADED
+    }
+
+    private final boolean enabled;
+    private final GradientLimiter limiter;
+    private final CoDelDetector queue;
+    @Getter
+    private final long retryAfterSeconds;
+
+    private final Counter rejectedByLimit;
+    private final Counter rejectedByQueue;
+
+    public WebhookAdmission(IngestionConfig config, MeterRegistry meterRegistry) {
+        IngestionConfig.Admission settings = config.getAdmission();
+        this.enabled = settings.isEnabled();
+        this.limiter = new GradientLimiter(settings.getInitialLimit(), settings.getMinLimit(),
+                settings.getMaxLimit(), settings.getLatencyTolerance(), settings.getSmoothing());
+        this.queue = new CoDelDetector(settings.getQueueTarget().toNanos(), settings.getQueueInterval().toNanos());
+        this.retryAfterSeconds = Math.max(1, settings.getRetryAfter().toSeconds());
+
+        Gauge.builder("webhook.admission.limit", limiter, GradientLimiter::limit)
+                .description("Current adaptive limit on webhook requests in flight")
+                .register(meterRegistry);
+        Gauge.builder("webhook.admission.inflight", limiter, GradientLimiter::inFlight)
+                .register(meterRegistry);
+        Gauge.builder("webhook.admission.queue.overloaded", queue, q -> q.isOverloaded() ? 1 : 0)
+                .description("1 while the lane queue has stayed above its latency target")
+                .register(meterRegistry);
+        this.rejectedByLimit = Counter.builder("webhook.admission.rejected")
+                .description("Webhook requests shed with 503")
+                .tag("reason", "limit")
+                .register(meterRegistry);
+        this.rejectedByQueue = Counter.builder("webhook.admission.rejected")
+                .description("Webhook requests shed with 503")
+                .tag("reason", "queue")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Admit a request; an ACCEPTED decision must be paired with {@link #release(long)}
+     */
+    public Decision tryAcquire() {
+        if (!enabled) {
+            return Decision.ACCEPTED;
+        }
+        if (queue.isOverloaded()) {
+            rejectedByQueue.increment();
+            return Decision.QUEUE_OVERLOADED;
+        }
+        if (!limiter.tryAcquire()) {
+            rejectedByLimit.increment();
+            return Decision.LIMIT_EXCEEDED;
+        }
+        return Decision.ACCEPTED;
+    }
+
+    public void release(long latencyNanos) {
+        if (enabled) {
+            limiter.release(latencyNanos);
+        }
+    }
+
+    /**
+     * Called by the lanes for every message they pick up
+     */
+    public void onDequeue(long waitedNanos, int remaining) {
+        queue.onDequeue(waitedNanos, remaining, System.nanoTime());
+    }
+}
@@ -0,0 +1,273 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.concurrent.PartitionedExecutor;
+import com.whatsapp.chatbot.config.IngestionConfig;
+import com.whatsapp.chatbot.inbox.InboxLog;
+import com.whatsapp.chatbot.webhook.InboundMessage;
+import com.whatsapp.chatbot.webhook.InboundMessageCodec;
+import com.whatsapp.chatbot.webhook.InboundWebhook;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accepts validated webhook events onto bounded in-memory queues so the webhook can be acknowledged
+ * before the DB writes and Graph API calls happen. Messages are partitioned by sender onto
+ * single-threaded lanes: one user's messages are answered in order, different users in parallel.
+ * <p>
+ * With the inbox enabled every accepted message is first appended to a local write-ahead log and
+ * marked complete once handled, so messages acknowledged but not yet handled are replayed after a
+ * crash or restart (at-least-once).
+ */
+@Slf4j
+@Service
+public class WebhookIngestionService {
+
+    private final ChatbotService chatbotService;
+    private final IngestionConfig config;
+    private final WebhookAdmission admission;
+    // Messages accepted but not yet picked up, across all lanes
+    private final AtomicInteger queued = new AtomicInteger();
+    private final PartitionedExecutor executor;
+    private final InboxLog inbox;
+    private final ScheduledExecutorService inboxFlusher;
+    private List<InboxLog.Entry> recovered = List.of();
+
+    private final Timer queueWait;
+    private final Timer processing;
+    private final Counter rejected;
+    private final Counter failed;
+    private final Timer inboxAppend;
+    private final Counter replayed;
+
+    public WebhookIngestionService(ChatbotService chatbotService, IngestionConfig config, WebhookAdmission admission,
+                                   MeterRegistry meterRegistry, Environment environment) {
+        this.chatbotService = chatbotService;
+        this.config = config;
+        this.admission = admission;
+        int lanes = config.getWorkers();
+        // Same switch as Tomcat and @Async: spring.threads.virtual.enabled, honoured on Java 21+
+        boolean virtualThreads = Threading.VIRTUAL.isActive(environment);
+        if (!virtualThreads && environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            log.warn("Virtual threads requested but Java {} does not support them; using platform threads",
+                    Runtime.version().feature());
+        }
+        this.executor = new PartitionedExecutor("webhook-lane-", lanes,
+                Math.max(1, config.getQueueCapacity() / lanes), virtualThreads);
+
+        Gauge.builder("webhook.queue.depth", executor, PartitionedExecutor::totalDepth)
+                .description("Inbound messages waiting for a lane")
+                .register(meterRegistry);
+        Gauge.builder("webhook.queue.capacity", executor, PartitionedExecutor::capacity)
+                .register(meterRegistry);
+        for (int lane = 0; lane < lanes; lane++) {
+            int index = lane;
+            Gauge.builder("webhook.lane.depth", executor, e -> e.depth(index))
+                    .description("Inbound messages waiting in one sender-partitioned lane")
+                    .tag("lane", Integer.toString(lane))
+                    .register(meterRegistry);
+        }
+        this.queueWait = Timer.builder("webhook.queue.wait")
+                .description("Time from acknowledging a webhook to a lane picking up one of its messages")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.processing = Timer.builder("webhook.processing")
+                .description("Time a lane spends processing one inbound message")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("webhook.queue.rejected")
+                .description("Webhook events refused because a lane was full")
+                .register(meterRegistry);
+        this.failed = Counter.builder("webhook.processing.failed")
+                .register(meterRegistry);
+
+        this.inbox = isAsync() && config.getInbox().isEnabled() ? openInbox(config.getInbox()) : null;
+        this.inboxFlusher = inbox != null && config.getInbox().getFsync() == IngestionConfig.Fsync.INTERVAL
+                ? Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("webhook-inbox-flush-"))
+                : null;
+        if (inboxFlusher != null) {
+            long interval = config.getInbox().getFsyncInterval().toMillis();
+            inboxFlusher.scheduleWithFixedDelay(this::flushInbox, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        this.inboxAppend = Timer.builder("webhook.inbox.append")
+                .description("Time to log and queue one webhook's messages, including fsync when required")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.replayed = Counter.builder("webhook.inbox.replayed")
+                .description("Inbox messages replayed after a restart")
+                .register(meterRegistry);
+        if (inbox != null) {
+            Gauge.builder("webhook.inbox.pending", inbox, InboxLog::pendingCount)
+                    .description("Accepted messages not yet handled")
+                    .register(meterRegistry);
+            Gauge.builder("webhook.inbox.segments", inbox, InboxLog::segmentCount)
+                    .register(meterRegistry);
+        }
+    }
+
+    private InboxLog openInbox(IngestionConfig.Inbox settings) {
+        Path directory = Path.of(settings.getDirectory());
+        InboxLog inboxLog = new InboxLog(directory, (int) settings.getSegmentSize().toBytes(),
+                settings.getFsync() != IngestionConfig.Fsync.NEVER);
+        try {
+            this.recovered = inboxLog.open();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open webhook inbox at " + directory.toAbsolutePath(), e);
+        }
+        return inboxLog;
+    }
+
+    public boolean isAsync() {
+        return config.getMode() == IngestionConfig.Mode.ASYNC;
+    }
+
+    /**
+     * Queue each inbound message of an event on its sender's lane; returns false when a lane is full.
+     * Messages queued before the rejection still run and are deduplicated when Meta redelivers the event.
+     */
+    public boolean submit(InboundWebhook webhook) {
+        if (!webhook.hasMessages()) {
+            return true;
+        }
+        long enqueuedAt = System.nanoTime();
+        long lastSeq = -1;
+        for (InboundMessage message : webhook.messages()) {
+            long seq;
+            try {
+                seq = append(message);
+            } catch (IOException e) {
+                log.error("Could not append message {} to the inbox: {}", message.id(), e.getMessage(), e);
+                return false;
+            }
+            try {
+                enqueue(message, seq, enqueuedAt);
+            } catch (RejectedExecutionException e) {
+                // Meta redelivers the rejected event, so this copy must not be replayed as well
+                complete(seq);
+                rejected.increment();
+                log.warn("Webhook lane full ({} messages queued), rejecting event", executor.totalDepth());
+                return false;
+            }
+            lastSeq = seq;
+        }
+        if (inbox != null && config.getInbox().getFsync() == IngestionConfig.Fsync.ALWAYS) {
+            try {
+                inbox.awaitDurable(lastSeq);
+            } catch (IOException | UncheckedIOException e) {
+                log.error("Could not force the inbox to disk: {}", e.getMessage(), e);
+                return false;
+            }
+        }
+        inboxAppend.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+        return true;
+    }
+
+    /**
+     * Queue the messages left unhandled by the previous run, in their original order
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayInbox() throws InterruptedException {
+        if (recovered.isEmpty()) {
+            return;
+        }
+        log.info("Replaying {} unhandled messages from the webhook inbox", recovered.size());
+        for (InboxLog.Entry entry : recovered) {
+            InboundMessage message = InboundMessageCodec.decode(entry.payload());
+            while (true) {
+                try {
+                    enqueue(message, entry.seq(), System.nanoTime());
+                    break;
+                } catch (RejectedExecutionException e) {
+                    // Wait for the lane to drain rather than drop a message we already acknowledged
+                    Thread.sleep(10);
+                }
+            }
+            replayed.increment();
+        }
+        recovered = List.of();
+    }
+
+    private void enqueue(InboundMessage message, long seq, long enqueuedAt) {
+        queued.incrementAndGet();
+        try {
+            executor.execute(message.from(), () -> process(message, seq, enqueuedAt));
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private long append(InboundMessage message) throws IOException {
+        return inbox == null ? -1 : inbox.append(InboundMessageCodec.encode(message));
+    }
+
+    private void complete(long seq) {
+        if (inbox != null) {
+            inbox.complete(seq);
+        }
+    }
+
+    private void flushInbox() {
+        try {
+            inbox.flush();
+        } catch (Exception e) {
+            log.warn("Periodic inbox fsync failed: {}", e.getMessage());
+        }
+    }
+
+    private void process(InboundMessage message, long seq, long enqueuedAt) {
+        long waited = System.nanoTime() - enqueuedAt;
+        queueWait.record(waited, TimeUnit.NANOSECONDS);
+        admission.onDequeue(waited, queued.decrementAndGet());
+        long started = System.nanoTime();
+        try {
+            chatbotService.handleMessage(message);
+            complete(seq);
+        } catch (Exception e) {
+            // Left incomplete in the inbox, so it is retried on the next start
+            failed.increment();
+            log.error("Error processing queued message {}: {}", message.id(), e.getMessage(), e);
+        } finally {
+            processing.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stop accepting events and let the lanes drain what is already queued
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Webhook lanes did not drain in time, {} messages left for replay", executor.shutdownNow().size());
+        }
+        if (inboxFlusher != null) {
+            inboxFlusher.shutdown();
+        }
+        if (inbox != null) {
+            try {
+                inbox.close();
+            } catch (IOException e) {
+                log.warn("Could not close the webhook inbox: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.whatsapp.chatbot.service;
 
+import com.whatsapp.chatbot.client.GraphApiResilience;
+import com.whatsapp.chatbot.client.PreparedMessage;
+import com.whatsapp.chatbot.client.WhatsAppClient;
 import com.whatsapp.chatbot.config.WhatsAppConfig;
 import com.whatsapp.chatbot.dto.WhatsAppMessageRequest;
 import com.whatsapp.chatbot.dto.WhatsAppMessageResponse;
-import com.whatsapp.chatbot.dto.WhatsAppWebhookRequest;
+import com.whatsapp.chatbot.webhook.InboundWebhook;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpEntity;
@@ -15,6 +18,7 @@ import org.springframework.web.client.RestTemplate;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
@@ -23,21 +27,24 @@ public class WhatsAppService {
 
     private final WhatsAppConfig whatsAppConfig;
     private final RestTemplate restTemplate;
+    private final WhatsAppClient whatsAppClient;
+    private final GraphApiResilience graphApiResilience;
 
     /**
      * Send a text message via WhatsApp
      */
     public WhatsAppMessageResponse sendTextMessage(String to, String message) {
         log.info("Sending WhatsApp message to: {}", to);
-        
-        WhatsAppMessageRequest request = WhatsAppMessageRequest.builder()
-                .messagingProduct("whatsapp")
-                .to(to)
-                .type("text")
-                .text(Map.of("body", message))
-                .build();
+        return sendMessage(textRequest(to, message));
+    }
 
-        return sendMessage(request);
+    /**
+     * Non-blocking {@link #sendTextMessage}; see {@link WhatsAppClient#sendMessageAsync} for timeouts
+     * and cancellation
+     */
+    public CompletableFuture<WhatsAppMessageResponse> sendTextMessageAsync(String to, String message) {
+        log.info("Sending WhatsApp message asynchronously to: {}", to);
+        return sendMessageAsync(textRequest(to, message));
     }
 
     /**
@@ -45,19 +52,21 @@ public class WhatsAppService {
      */
     public WhatsAppMessageResponse sendTemplateMessage(String to, String templateName, String languageCode) {
         log.info("Sending WhatsApp template message to: {}", to);
-        
-        Map<String, Object> template = new HashMap<>();
-        template.put("name", templateName);
-        template.put("language", Map.of("code", languageCode));
+        return sendMessage(templateRequest(to, templateName, languageCode));
+    }
 
-        WhatsAppMessageRequest request = WhatsAppMessageRequest.builder()
-                .messagingProduct("whatsapp")
-                .to(to)
-                .type("template")
-                .template(template)
-                .build();
+    public CompletableFuture<WhatsAppMessageResponse> sendTemplateMessageAsync(String to, String templateName,
+                                                                               String languageCode) {
+        log.info("Sending WhatsApp template message asynchronously to: {}", to);
+        return sendMessageAsync(templateRequest(to, templateName, languageCode));
+    }
 
-        return sendMessage(request);
+    /**
+     * Serialize a template message once, for sending to many recipients through {@link OutboundScheduler}
+     */
+    public PreparedMessage prepareTemplateMessage(String templateName, String languageCode) {
+        return whatsAppClient.prepare(templateRequest(PreparedMessage.RECIPIENT, templateName, languageCode),
+                "template " + templateName + " (" + languageCode + ")");
     }
 
     /**
@@ -65,21 +74,12 @@ public class WhatsAppService {
      */
     public WhatsAppMessageResponse sendMediaMessage(String to, String mediaId, String caption) {
         log.info("Sending WhatsApp media message to: {}", to);
-        
-        Map<String, Object> media = new HashMap<>();
-        media.put("id", mediaId);
-        if (caption != null) {
-            media.put("caption", caption);
-        }
-
-        WhatsAppMessageRequest request = WhatsAppMessageRequest.builder()
-                .messagingProduct("whatsapp")
-                .to(to)
-                .type("image")
-                .image(media)
-                .build();
+        return sendMessage(mediaRequest(to, mediaId, caption));
+    }
 
-        return sendMessage(request);
+    public CompletableFuture<WhatsAppMessageResponse> sendMediaMessageAsync(String to, String mediaId, String caption) {
+        log.info("Sending WhatsApp media message asynchronously to: {}", to);
+        return sendMessageAsync(mediaRequest(to, mediaId, caption));
     }
 
     /**
@@ -100,21 +100,14 @@ public class WhatsAppService {
     /**
      * Process incoming webhook
      */
-    public void processWebhook(WhatsAppWebhookRequest webhookRequest) {
-        log.info("Processing webhook: {}", webhookRequest);
+    public void processWebhook(InboundWebhook webhook) {
+        log.debug("Processing {}", webhook);
         
         // Process the webhook data
         // This will be implemented based on your business logic
-        webhookRequest.getEntry().forEach(entry -> {
-            entry.getChanges().forEach(change -> {
-                if ("messages".equals(change.getValue().getObject())) {
-                    change.getValue().getMessages().forEach(message -> {
-                        log.info("Received message from {}: {}", 
-                                message.getFrom(), message.getText().getBody());
-                        // Handle the message here
-                    });
-                }
-            });
+        webhook.messages().forEach(message -> {
+            log.info("Received {} message from {}: {}", message.type(), message.from(), message.textBody());
+            // Handle the message here
         });
     }
 
@@ -141,8 +134,8 @@ public class WhatsAppService {
         HttpHeaders headers = createHeaders();
         
         try {
-            ResponseEntity<WhatsAppMessageResponse> response = restTemplate.exchange(
-                    url, HttpMethod.POST, new HttpEntity<>(request, headers), WhatsAppMessageResponse.class);
+            ResponseEntity<WhatsAppMessageResponse> response = graphApiResilience.call(() -> restTemplate.exchange(
+                    url, HttpMethod.POST, new HttpEntity<>(request, headers), WhatsAppMessageResponse.class));
             
             log.info("Message sent successfully: {}", response.getBody());
             return response.getBody();
@@ -152,6 +145,59 @@ public class WhatsAppService {
         }
     }
 
+    private CompletableFuture<WhatsAppMessageResponse> sendMessageAsync(WhatsAppMessageRequest request) {
+        String url = whatsAppConfig.getMessagesUrl();
+        HttpHeaders headers = createHeaders();
+        CompletableFuture<WhatsAppMessageResponse> result = graphApiResilience.callAsync(
+                () -> whatsAppClient.postAsync(url, headers, request, WhatsAppMessageResponse.class));
+        // Returned as is, not the dependent stage, so cancelling it reaches the request
+        result.whenComplete((response, failure) -> {
+            if (failure == null) {
+                log.info("Message sent successfully: {}", response);
+            } else {
+                log.error("Failed to send WhatsApp message: {}", failure.getMessage());
+            }
+        });
+        return result;
+    }
+
+    private WhatsAppMessageRequest textRequest(String to, String message) {
+        return WhatsAppMessageRequest.builder()
+                .messagingProduct("whatsapp")
+                .to(to)
+                .type("text")
+                .text(Map.of("body", message))
+                .build();
+    }
+
+    private WhatsAppMessageRequest templateRequest(String to, String templateName, String languageCode) {
+        Map<String, Object> template = new HashMap<>();
+        template.put("name", templateName);
+        template.put("language", Map.of("code", languageCode));
+
+        return WhatsAppMessageRequest.builder()
+                .messagingProduct("whatsapp")
+                .to(to)
+                .type("template")
+                .template(template)
+                .build();
+    }
+
+    private WhatsAppMessageRequest mediaRequest(String to, String mediaId, String caption) {
+        Map<String, Object> media = new HashMap<>();
+        media.put("id", mediaId);
+        if (caption != null) {
+            media.put("caption", caption);
+        }
+
+        return WhatsAppMessageRequest.builder()
+                .messagingProduct("whatsapp")
+                .to(to)
+                .type("image")
+                .image(media)
+                .build();
+    }
+
     /**
      * Create headers with authorization
      */
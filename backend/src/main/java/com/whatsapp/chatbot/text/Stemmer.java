@@ -0,0 +1,57 @@
+package com.whatsapp.chatbot.text;
+
+/**
+ * Light, in-place suffix stripping applied to each normalized token
+ */
+public enum Stemmer {
+
+    NONE {
+        @Override
+        public int stem(StringBuilder buf, int start, int end) {
+            return end;
+        }
+    },
+
+    /**
+     * Harman's S-stemmer: folds English plurals without touching other suffixes
+     */
+    ENGLISH {
+        @Override
+        public int stem(StringBuilder buf, int start, int end) {
+            int len = end - start;
+            if (len <= 3 || buf.charAt(end - 1) != 's') {
+                return end;
+            }
+            if (endsWith(buf, end, "ies") && !endsWith(buf, end, "eies") && !endsWith(buf, end, "aies")) {
+                buf.setCharAt(end - 3, 'y');
+                return end - 2;
+            }
+            if (endsWith(buf, end, "es") && !endsWith(buf, end, "aes")
+                    && !endsWith(buf, end, "ees") && !endsWith(buf, end, "oes")) {
+                return end - 1;
+            }
+            if (!endsWith(buf, end, "us") && !endsWith(buf, end, "ss")) {
+                return end - 1;
+            }
+            return end;
+        }
+    };
+
+    /**
+     * Stem the token in {@code buf[start, end)} in place and return its new end
+     */
+    public abstract int stem(StringBuilder buf, int start, int end);
+
+    private static boolean endsWith(StringBuilder buf, int end, String suffix) {
+        int from = end - suffix.length();
+        if (from < 0) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (buf.charAt(from + i) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
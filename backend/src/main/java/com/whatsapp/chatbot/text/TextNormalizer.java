@@ -0,0 +1,107 @@
+package com.whatsapp.chatbot.text;
+
+import java.text.Normalizer;
+
+/**
+ * Canonical form of user and trigger text, computed once per inbound message and shared by
+ * intent matching, the resolution cache and stored messages.
+ * <p>
+ * Applies NFKC compatibility folding, strips accents from Latin, Greek and Cyrillic letters,
+ * case-folds, drops apostrophes, turns every run of whitespace, punctuation, symbols and emoji
+ * into a single space, and optionally stems each token. The result contains only letters,
+ * digits, marks and single inner spaces.
+ * Pure ASCII input skips the Unicode normalization passes entirely.
+ */
+public final class TextNormalizer {
+
+    private final Stemmer stemmer;
+
+    public TextNormalizer(Stemmer stemmer) {
+        this.stemmer = stemmer;
+    }
+
+    public String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String source = isAscii(text) ? text : decompose(text);
+
+        StringBuilder out = new StringBuilder(source.length());
+        int tokenStart = -1;
+        for (int i = 0; i < source.length(); ) {
+            int cp = source.codePointAt(i);
+            i += Character.charCount(cp);
+
+            if (isMark(cp) && tokenStart >= 0) {
+                // Marks that survived accent stripping (e.g. Indic vowel signs) belong to the token
+                out.appendCodePoint(cp);
+            } else if (Character.isLetterOrDigit(cp)) {
+                if (tokenStart < 0) {
+                    if (out.length() > 0) {
+                        out.append(' ');
+                    }
+                    tokenStart = out.length();
+                }
+                out.appendCodePoint(Character.toLowerCase(Character.toUpperCase(cp)));
+            } else if (isApostrophe(cp) || isMark(cp)) {
+                // "where's" stays one token
+                continue;
+            } else if (tokenStart >= 0) {
+                out.setLength(stemmer.stem(out, tokenStart, out.length()));
+                tokenStart = -1;
+            }
+        }
+        if (tokenStart >= 0) {
+            out.setLength(stemmer.stem(out, tokenStart, out.length()));
+        }
+        return out.toString();
+    }
+
+    public Stemmer getStemmer() {
+        return stemmer;
+    }
+
+    // NFKD separates accents from their base letters. Only accents on Latin, Greek and Cyrillic
+    // letters are dropped; other scripts need their marks. Recomposing afterwards leaves scripts
+    // such as Hangul in their precomposed (NFKC) form.
+    private static String decompose(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder stripped = new StringBuilder(decomposed.length());
+        boolean accentedScript = false;
+        for (int i = 0; i < decomposed.length(); ) {
+            int cp = decomposed.codePointAt(i);
+            i += Character.charCount(cp);
+            if (Character.getType(cp) == Character.NON_SPACING_MARK) {
+                if (accentedScript) {
+                    continue;
+                }
+            } else {
+                Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+                accentedScript = script == Character.UnicodeScript.LATIN
+                        || script == Character.UnicodeScript.GREEK
+                        || script == Character.UnicodeScript.CYRILLIC;
+            }
+            stripped.appendCodePoint(cp);
+        }
+        return Normalizer.normalize(stripped, Normalizer.Form.NFC);
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isMark(int cp) {
+        int type = Character.getType(cp);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                || type == Character.ENCLOSING_MARK;
+    }
+
+    private static boolean isApostrophe(int cp) {
+        return cp == '\'' || cp == '\u2019' || cp == '\u02BC';
+    }
+}
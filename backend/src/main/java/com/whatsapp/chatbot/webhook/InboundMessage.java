@@ -0,0 +1,12 @@
+package com.whatsapp.chatbot.webhook;
+
+/**
+ * The fields of one inbound message the pipeline uses; {@code textBody} is null unless {@code type} is text
+ */
+public record InboundMessage(String phoneNumberId, String from, String id, String timestamp,
+                             String type, String textBody) {
+
+    InboundMessage withPhoneNumberId(String phoneNumberId) {
+        return new InboundMessage(phoneNumberId, from, id, timestamp, type, textBody);
+    }
+}
@@ -0,0 +1,61 @@
+package com.whatsapp.chatbot.webhook;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary form of an {@link InboundMessage} for the local inbox:
+ * a version byte, then each field as an int length (-1 for null) and UTF-8 bytes
+ */
+public final class InboundMessageCodec {
+
+    private static final byte VERSION = 1;
+    private static final int FIELDS = 6;
+
+    private InboundMessageCodec() {
+    }
+
+    public static byte[] encode(InboundMessage message) {
+        byte[][] fields = {
+                utf8(message.phoneNumberId()), utf8(message.from()), utf8(message.id()),
+                utf8(message.timestamp()), utf8(message.type()), utf8(message.textBody())
+        };
+        int size = 1 + FIELDS * Integer.BYTES;
+        for (byte[] field : fields) {
+            size += field == null ? 0 : field.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).put(VERSION);
+        for (byte[] field : fields) {
+            if (field == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(field.length).put(field);
+            }
+        }
+        return buffer.array();
+    }
+
+    public static InboundMessage decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported inbox record version " + version);
+        }
+        return new InboundMessage(string(buffer), string(buffer), string(buffer),
+                string(buffer), string(buffer), string(buffer));
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
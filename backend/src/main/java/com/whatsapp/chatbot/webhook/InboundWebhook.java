@@ -0,0 +1,20 @@
+package com.whatsapp.chatbot.webhook;
+
+import java.util.List;
+
+/**
+ * What {@link WebhookParser} keeps of a webhook delivery: its messages and status receipts
+ */
+public record InboundWebhook(String object, List<InboundMessage> messages, List<StatusUpdate> statuses) {
+
+    public boolean hasMessages() {
+        return !messages.isEmpty();
+    }
+
+    // Deliberately a summary: message bodies are user content and statuses dominate volume
+    @Override
+    public String toString() {
+        return "InboundWebhook[object=" + object + ", messages=" + messages.size()
+                + ", statuses=" + statuses.size() + "]";
+    }
+}
@@ -0,0 +1,7 @@
+package com.whatsapp.chatbot.webhook;
+
+/**
+ * A sent/delivered/read/failed receipt for one outbound message
+ */
+public record StatusUpdate(String id, String status, String timestamp, String recipientId) {
+}
@@ -0,0 +1,220 @@
+package com.whatsapp.chatbot.webhook;
+
+import com.whatsapp.chatbot.config.WhatsAppConfig;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a webhook body once into a pooled buffer while computing its HMAC-SHA256 with the app secret,
+ * so the {@code X-Hub-Signature-256} check needs no second pass and the same bytes go to
+ * {@link WebhookParser}. Buffers and keyed {@link Mac}s are pooled together rather than held per
+ * thread, which also suits request-per-virtual-thread execution.
+ */
+@Slf4j
+@Component
+public class WebhookBodyReader {
+
+    public static final String SIGNATURE_HEADER = "X-Hub-Signature-256";
+    private static final String SIGNATURE_PREFIX = "sha256=";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int DIGEST_LENGTH = 32;
+    private static final int INITIAL_BUFFER = 16 * 1024;
+    // Buffers grown past this are dropped instead of pooled, so one large body does not pin memory
+    private static final int MAX_POOLED_BUFFER = 64 * 1024;
+    public static final int MAX_BODY = 1024 * 1024;
+
+    private final WebhookParser parser;
+    private final SecretKeySpec key;
+    private final BlockingQueue<Body> pool =
+            new ArrayBlockingQueue<>(Math.max(64, 4 * Runtime.getRuntime().availableProcessors()));
+
+    public WebhookBodyReader(WhatsAppConfig config, WebhookParser parser) {
+        this.parser = parser;
+        String secret = config.getAppSecret();
+        this.key = secret == null || secret.isBlank()
+                ? null
+                : new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        if (key == null) {
+            log.warn("whatsapp.api.app-secret is not set; webhook signatures are NOT verified");
+        }
+    }
+
+    public boolean isVerifying() {
+        return key != null;
+    }
+
+    /**
+     * Read, authenticate and parse a webhook request; nothing is deserialized unless the signature matches
+     *
+     * @throws SignatureMismatchException if the signature is missing or wrong
+     * @throws BodyTooLargeException      if the body exceeds {@link #MAX_BODY}
+     * @throws IOException                if the body is not a valid webhook payload
+     */
+    public InboundWebhook readWebhook(HttpServletRequest request) throws IOException {
+        try (Body body = read(request.getInputStream(), request.getHeader(SIGNATURE_HEADER),
+                request.getContentLengthLong())) {
+            if (!body.isAuthentic()) {
+                throw new SignatureMismatchException();
+            }
+            return parser.parse(body.buffer(), 0, body.length());
+        }
+    }
+
+    /**
+     * Read the body, signing it on the way; the returned body must be closed to return its buffer.
+     * A missing or malformed signature header fails before the body is read or any buffer is sized for it.
+     *
+     * @throws BodyTooLargeException if the body exceeds {@link #MAX_BODY}
+     */
+    public Body read(InputStream in, String signatureHeader, long contentLength) throws IOException {
+        Body body = pool.poll();
+        if (body == null) {
+            body = new Body(key);
+        }
+        body.reset(signatureHeader);
+        // A forged request is turned away before its Content-Length can size the buffer
+        if (key != null && !body.signatureWellFormed) {
+            return body;
+        }
+        try {
+            body.readFrom(in, contentLength);
+        } catch (IOException | RuntimeException e) {
+            body.close();
+            throw e;
+        }
+        return body;
+    }
+
+    public static class BodyTooLargeException extends IOException {
+        public BodyTooLargeException() {
+            super("Webhook body exceeds " + MAX_BODY + " bytes");
+        }
+    }
+
+    public static class SignatureMismatchException extends IOException {
+        public SignatureMismatchException() {
+            super("Missing or invalid " + SIGNATURE_HEADER);
+        }
+    }
+
+    /**
+     * A body read into a pooled buffer; valid until closed
+     */
+    public final class Body implements AutoCloseable {
+        private final Mac mac;
+        private final byte[] expected = new byte[DIGEST_LENGTH];
+        private final byte[] actual = new byte[DIGEST_LENGTH];
+        private byte[] buffer = new byte[INITIAL_BUFFER];
+        private int length;
+        private boolean signatureWellFormed;
+        private boolean read;
+
+        private Body(SecretKeySpec key) {
+            if (key == null) {
+                this.mac = null;
+                return;
+            }
+            try {
+                this.mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+        }
+
+        private void reset(String signatureHeader) {
+            length = 0;
+            read = false;
+            signatureWellFormed = mac != null && parseSignature(signatureHeader);
+            if (mac != null) {
+                mac.reset();
+            }
+        }
+
+        private void readFrom(InputStream in, long contentLength) throws IOException {
+            // One spare byte so a body of exactly Content-Length reaches EOF without growing the buffer
+            if (contentLength >= buffer.length && contentLength <= MAX_BODY) {
+                buffer = new byte[(int) contentLength + 1];
+            }
+            int n;
+            while ((n = in.read(buffer, length, buffer.length - length)) != -1) {
+                if (mac != null) {
+                    mac.update(buffer, length, n);
+                }
+                length += n;
+                if (length == buffer.length) {
+                    if (length >= MAX_BODY + 1) {
+                        throw new BodyTooLargeException();
+                    }
+                    buffer = Arrays.copyOf(buffer, Math.min(MAX_BODY + 1, buffer.length * 2));
+                }
+            }
+            if (length > MAX_BODY) {
+                throw new BodyTooLargeException();
+            }
+            read = true;
+        }
+
+        /**
+         * True if the app secret is unset, or the header carries the HMAC of exactly these bytes
+         */
+        public boolean isAuthentic() {
+            if (mac == null) {
+                return true;
+            }
+            if (!signatureWellFormed || !read) {
+                return false;
+            }
+            try {
+                mac.doFinal(actual, 0);
+            } catch (ShortBufferException e) {
+                throw new IllegalStateException(e);
+            }
+            return MessageDigest.isEqual(expected, actual);
+        }
+
+        public byte[] buffer() {
+            return buffer;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        private boolean parseSignature(String header) {
+            if (header == null || header.length() != SIGNATURE_PREFIX.length() + 2 * DIGEST_LENGTH
+                    || !header.regionMatches(true, 0, SIGNATURE_PREFIX, 0, SIGNATURE_PREFIX.length())) {
+                return false;
+            }
+            for (int i = 0; i < DIGEST_LENGTH; i++) {
+                int hi = Character.digit(header.charAt(SIGNATURE_PREFIX.length() + 2 * i), 16);
+                int lo = Character.digit(header.charAt(SIGNATURE_PREFIX.length() + 2 * i + 1), 16);
+                if (hi < 0 || lo < 0) {
+                    return false;
+                }
+                expected[i] = (byte) ((hi << 4) | lo);
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (buffer.length <= MAX_POOLED_BUFFER) {
+                pool.offer(this);
+            }
+        }
+    }
+}
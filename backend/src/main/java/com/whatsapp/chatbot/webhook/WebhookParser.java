@@ -0,0 +1,252 @@
+package com.whatsapp.chatbot.webhook;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Token-level reader for WhatsApp webhook bodies. Only the fields in {@link InboundMessage} and
+ * {@link StatusUpdate} are materialized; contacts, pricing, conversation and any other sections
+ * are skipped without building objects.
+ */
+@Component
+public class WebhookParser {
+
+    // Status values come from a small fixed set; returning the constants avoids a String per receipt
+    private static final String[] KNOWN_STATUSES = {"sent", "delivered", "read", "failed", "deleted"};
+
+    private final JsonFactory jsonFactory;
+
+    public WebhookParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public InboundWebhook parse(byte[] body) throws IOException {
+        return parse(body, 0, body.length);
+    }
+
+    /**
+     * Parse a UTF-8 body; malformed JSON or a body without an {@code object} field is rejected
+     */
+    public InboundWebhook parse(byte[] body, int offset, int length) throws IOException {
+        try (JsonParser p = jsonFactory.createParser(body, offset, length)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(p, "Webhook body must be a JSON object");
+            }
+            String object = null;
+            List<InboundMessage> messages = new ArrayList<>();
+            List<StatusUpdate> statuses = new ArrayList<>();
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                if ("object".equals(name)) {
+                    object = scalar(p);
+                } else if ("entry".equals(name)) {
+                    if (enter(p, JsonToken.START_ARRAY)) {
+                        while (nextElement(p)) {
+                            readEntry(p, messages, statuses);
+                        }
+                    }
+                } else {
+                    skipValue(p);
+                }
+            }
+            if (object == null || object.isEmpty()) {
+                throw new JsonParseException(p, "Webhook body has no object field");
+            }
+            return new InboundWebhook(object, messages, statuses);
+        }
+    }
+
+    private void readEntry(JsonParser p, List<InboundMessage> messages, List<StatusUpdate> statuses) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            if ("changes".equals(p.currentName())) {
+                if (enter(p, JsonToken.START_ARRAY)) {
+                    while (nextElement(p)) {
+                        readChange(p, messages, statuses);
+                    }
+                }
+            } else {
+                skipValue(p);
+            }
+        }
+    }
+
+    private void readChange(JsonParser p, List<InboundMessage> messages, List<StatusUpdate> statuses) throws IOException {
+        // "field" may follow "value", so read the value first and drop it if the field is not messages
+        int messageMark = messages.size();
+        int statusMark = statuses.size();
+        String field = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            if ("field".equals(name)) {
+                field = scalar(p);
+            } else if ("value".equals(name)) {
+                if (enter(p, JsonToken.START_OBJECT)) {
+                    readValue(p, messages, statuses);
+                }
+            } else {
+                skipValue(p);
+            }
+        }
+        if (!"messages".equals(field)) {
+            messages.subList(messageMark, messages.size()).clear();
+            statuses.subList(statusMark, statuses.size()).clear();
+        }
+    }
+
+    private void readValue(JsonParser p, List<InboundMessage> messages, List<StatusUpdate> statuses) throws IOException {
+        int messageMark = messages.size();
+        String phoneNumberId = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            if ("metadata".equals(name)) {
+                if (enter(p, JsonToken.START_OBJECT)) {
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        if ("phone_number_id".equals(p.currentName())) {
+                            phoneNumberId = scalar(p);
+                        } else {
+                            skipValue(p);
+                        }
+                    }
+                }
+            } else if ("messages".equals(name)) {
+                if (enter(p, JsonToken.START_ARRAY)) {
+                    while (nextElement(p)) {
+                        messages.add(readMessage(p, phoneNumberId));
+                    }
+                }
+            } else if ("statuses".equals(name)) {
+                if (enter(p, JsonToken.START_ARRAY)) {
+                    while (nextElement(p)) {
+                        statuses.add(readStatus(p));
+                    }
+                }
+            } else {
+                skipValue(p);
+            }
+        }
+        // Graph API sends metadata first; patch messages read before it otherwise
+        for (int i = messageMark; i < messages.size(); i++) {
+            if (messages.get(i).phoneNumberId() == null && phoneNumberId != null) {
+                messages.set(i, messages.get(i).withPhoneNumberId(phoneNumberId));
+            }
+        }
+    }
+
+    private InboundMessage readMessage(JsonParser p, String phoneNumberId) throws IOException {
+        String from = null;
+        String id = null;
+        String timestamp = null;
+        String type = null;
+        String textBody = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            switch (p.currentName()) {
+                case "from" -> from = scalar(p);
+                case "id" -> id = scalar(p);
+                case "timestamp" -> timestamp = scalar(p);
+                case "type" -> type = scalar(p);
+                case "text" -> {
+                    if (enter(p, JsonToken.START_OBJECT)) {
+                        while (p.nextToken() == JsonToken.FIELD_NAME) {
+                            if ("body".equals(p.currentName())) {
+                                textBody = scalar(p);
+                            } else {
+                                skipValue(p);
+                            }
+                        }
+                    }
+                }
+                default -> skipValue(p);
+            }
+        }
+        return new InboundMessage(phoneNumberId, from, id, timestamp, type, textBody);
+    }
+
+    private StatusUpdate readStatus(JsonParser p) throws IOException {
+        String id = null;
+        String status = null;
+        String timestamp = null;
+        String recipientId = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            switch (p.currentName()) {
+                case "id" -> id = scalar(p);
+                case "status" -> status = statusValue(p);
+                case "timestamp" -> timestamp = scalar(p);
+                case "recipient_id" -> recipientId = scalar(p);
+                default -> skipValue(p);
+            }
+        }
+        return new StatusUpdate(id, status, timestamp, recipientId);
+    }
+
+    // Next value as text if it is a scalar; containers are skipped and read as null
+    private static String scalar(JsonParser p) throws IOException {
+        JsonToken token = p.nextToken();
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return null;
+        }
+        return token == JsonToken.VALUE_NULL ? null : p.getValueAsString();
+    }
+
+    private static String statusValue(JsonParser p) throws IOException {
+        if (p.nextToken() != JsonToken.VALUE_STRING) {
+            p.skipChildren();
+            return null;
+        }
+        char[] chars = p.getTextCharacters();
+        int offset = p.getTextOffset();
+        int length = p.getTextLength();
+        for (String known : KNOWN_STATUSES) {
+            if (sameChars(known, chars, offset, length)) {
+                return known;
+            }
+        }
+        return p.getText();
+    }
+
+    private static boolean sameChars(String s, char[] chars, int offset, int length) {
+        if (s.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Advance to the next value; true if it opens the expected container, otherwise it is skipped
+    private static boolean enter(JsonParser p, JsonToken start) throws IOException {
+        if (p.nextToken() == start) {
+            return true;
+        }
+        p.skipChildren();
+        return false;
+    }
+
+    // Advance to the next object in an array, skipping elements of any other kind
+    private static boolean nextElement(JsonParser p) throws IOException {
+        JsonToken token;
+        while ((token = p.nextToken()) != null && token != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                return true;
+            }
+            p.skipChildren();
+        }
+        return false;
+    }
+
+    private static void skipValue(JsonParser p) throws IOException {
+        p.nextToken();
+        p.skipChildren();
+    }
+}